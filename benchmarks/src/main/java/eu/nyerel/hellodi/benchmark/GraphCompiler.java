@@ -0,0 +1,98 @@
+package eu.nyerel.hellodi.benchmark;
+
+import eu.nyerel.hellodi.Processor;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles a {@link SyntheticGraph} with the hello-di {@link Processor}, via {@link JavaCompiler}.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class GraphCompiler {
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final List<JavaFileObject> sources;
+
+    GraphCompiler(SyntheticGraph graph) {
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler, benchmarks have to run on a JDK");
+        }
+        sources = graph.getSourcesByClassName().entrySet().stream()
+                .map(GraphCompiler::toFileObject)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Runs only annotation processing, i.e. the generated injector is written but nothing is compiled.
+     */
+    void process(Path outputDirectory, String... processorOptions) {
+        run(outputDirectory, true, processorOptions);
+    }
+
+    void compile(Path outputDirectory, String... processorOptions) {
+        run(outputDirectory, false, processorOptions);
+    }
+
+    private void run(Path outputDirectory, boolean processOnly, String... processorOptions) {
+        List<String> options = new ArrayList<>(List.of(
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", outputDirectory.toString(),
+                "-s", outputDirectory.toString(),
+                "-nowarn"));
+        if (processOnly) {
+            options.add("-proc:only");
+        }
+        for (String option : processorOptions) {
+            options.add("-A" + option);
+        }
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, null, options, null, sources);
+        task.setProcessors(List.of(new Processor()));
+        if (!task.call()) {
+            throw new IllegalStateException("Compilation of synthetic graph failed, options " + options);
+        }
+    }
+
+    static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("hellodi-benchmark");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void delete(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JavaFileObject toFileObject(Map.Entry<String, String> source) {
+        URI uri = URI.create("string:///" + source.getKey().replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source.getValue();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,157 @@
+package eu.nyerel.hellodi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runtime cost of the injector generated for a synthetic bean graph, in each of the generation modes. Run with
+ * {@code -prof gc} to see allocations per call.
+ * <p>
+ * Cold start and class loading are measured in the same JVM, each run loads the classes by a new class loader.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InjectorBenchmark {
+
+    private static final MethodType INJECT_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType INJECT_BY_TYPE_TYPE = MethodType.methodType(Object.class, Class.class);
+    private static final MethodType INJECT_BY_NAME_TYPE = MethodType.methodType(Object.class, String.class);
+
+    @Param({"100", "1000"})
+    int beans;
+
+    @Param({"default", "singleton", "lazy"})
+    String mode;
+
+    private Path classesDirectory;
+    private List<String> classNames;
+    private MethodHandle inject;
+    private MethodHandle injectByType;
+    private MethodHandle injectByName;
+    private Class<?> lookupType;
+    private String lookupName;
+
+    @Setup(Level.Trial)
+    public void compileGraph() throws Exception {
+        SyntheticGraph graph = new SyntheticGraph(beans, 4);
+        classesDirectory = GraphCompiler.createTempDirectory();
+        new GraphCompiler(graph).compile(classesDirectory, "hellodi.injector.package=" + SyntheticGraph.PACKAGE,
+                "hellodi.singleton=" + "singleton".equals(mode), "hellodi.lazy=" + "lazy".equals(mode));
+        classNames = List.copyOf(graph.getSourcesByClassName().keySet());
+
+        ClassLoader loader = newClassLoader();
+        Class<?> injector = loader.loadClass(SyntheticGraph.INJECTOR_CLASS);
+        inject = findInject(injector);
+        injectByType = MethodHandles.publicLookup()
+                .unreflect(injector.getMethod("inject", Class.class))
+                .asType(INJECT_BY_TYPE_TYPE);
+        injectByName = MethodHandles.publicLookup()
+                .unreflect(injector.getMethod("inject", String.class))
+                .asType(INJECT_BY_NAME_TYPE);
+        lookupType = loader.loadClass(graph.getMiddleBeanClassName());
+        lookupName = lookupType.getSimpleName().substring(0, 1).toLowerCase() + lookupType.getSimpleName().substring(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteClasses() {
+        GraphCompiler.delete(classesDirectory);
+    }
+
+    /**
+     * Creates the whole graph, unless it is shared (singleton mode).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object inject() throws Throwable {
+        return (Object) inject.invokeExact();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object injectByType() throws Throwable {
+        return (Object) injectByType.invokeExact(lookupType);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object injectByName() throws Throwable {
+        return (Object) injectByName.invokeExact(lookupName);
+    }
+
+    /**
+     * Loading of the injector and bean classes, and creation of the graph.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Object coldStart() throws Throwable {
+        return (Object) findInject(newClassLoader().loadClass(SyntheticGraph.INJECTOR_CLASS)).invokeExact();
+    }
+
+    /**
+     * Loading and initialization of the injector and bean classes only, without creation of the graph.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public Class<?> classLoading() throws ClassNotFoundException {
+        ClassLoader loader = newClassLoader();
+        Class<?> injector = Class.forName(SyntheticGraph.INJECTOR_CLASS, true, loader);
+        for (String className : classNames) {
+            Class.forName(className, true, loader);
+        }
+        return injector;
+    }
+
+    private ClassLoader newClassLoader() {
+        try {
+            URL classes = classesDirectory.toUri().toURL();
+            return new URLClassLoader(new URL[]{classes}, InjectorBenchmark.class.getClassLoader());
+        } catch (MalformedURLException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Unreflected, a method handle looked up by type would resolve the root bean class in the lookup class loader.
+     */
+    private static MethodHandle findInject(Class<?> injector) throws NoSuchMethodException, IllegalAccessException {
+        return MethodHandles.publicLookup()
+                .unreflect(injector.getMethod("inject"))
+                .asType(INJECT_TYPE);
+    }
+
+}
@@ -0,0 +1,66 @@
+package eu.nyerel.hellodi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Annotation processing of synthetic bean graphs. Measured time includes parsing and attribution of the bean sources
+ * by javac, which is needed before the processor can run.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProcessorBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int beans;
+
+    @Param({"1", "4"})
+    int fanOut;
+
+    private GraphCompiler compiler;
+    private Path outputDirectory;
+
+    @Setup(Level.Trial)
+    public void generateGraph() {
+        compiler = new GraphCompiler(new SyntheticGraph(beans, fanOut));
+    }
+
+    /**
+     * Fresh output for each run, so no bean index of a previous run is found.
+     */
+    @Setup(Level.Invocation)
+    public void createOutputDirectory() {
+        outputDirectory = GraphCompiler.createTempDirectory();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutputDirectory() {
+        GraphCompiler.delete(outputDirectory);
+    }
+
+    @Benchmark
+    public void process() {
+        compiler.process(outputDirectory);
+    }
+
+}
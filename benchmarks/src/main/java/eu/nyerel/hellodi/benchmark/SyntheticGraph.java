@@ -0,0 +1,92 @@
+package eu.nyerel.hellodi.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Sources of a generated bean graph. Each bean depends on up to {@code fanOut} randomly chosen beans created before
+ * it, and a single root bean {@code bench.App} depends on all the beans nothing else depends on (via group beans, if
+ * there are too many of them for a single constructor).
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+public class SyntheticGraph {
+
+    static final String PACKAGE = "bench";
+    static final String ROOT_CLASS = PACKAGE + ".App";
+    static final String INJECTOR_CLASS = PACKAGE + ".Injector";
+
+    private static final int PACKAGE_COUNT = 10;
+    /**
+     * A constructor may have at most 255 parameters.
+     */
+    private static final int MAX_PARAMETERS = 200;
+
+    private final Map<String, String> sourcesByClassName = new LinkedHashMap<>();
+
+    public SyntheticGraph(int beanCount, int fanOut) {
+        Random random = new Random(beanCount * 31L + fanOut);
+        boolean[] hasDependents = new boolean[beanCount];
+        for (int i = 0; i < beanCount; i++) {
+            TreeSet<Integer> dependencies = new TreeSet<>();
+            for (int d = 0; d < Math.min(i, fanOut); d++) {
+                dependencies.add(random.nextInt(i));
+            }
+            List<String> parameters = new ArrayList<>();
+            for (int dependency : dependencies) {
+                hasDependents[dependency] = true;
+                parameters.add(className(dependency) + " b" + dependency);
+            }
+            addBean(className(i), parameters);
+        }
+        List<String> rootParameters = new ArrayList<>();
+        for (int i = 0; i < beanCount; i++) {
+            if (!hasDependents[i]) {
+                rootParameters.add(className(i) + " b" + i);
+            }
+        }
+        int groupCount = 0;
+        while (rootParameters.size() > MAX_PARAMETERS) {
+            List<String> groupParameters = new ArrayList<>();
+            for (int from = 0; from < rootParameters.size(); from += MAX_PARAMETERS) {
+                String group = PACKAGE + ".Group" + groupCount++;
+                addBean(group, rootParameters.subList(from, Math.min(from + MAX_PARAMETERS, rootParameters.size())));
+                groupParameters.add(group + " g" + groupCount);
+            }
+            rootParameters = groupParameters;
+        }
+        addBean(ROOT_CLASS, rootParameters);
+    }
+
+    public Map<String, String> getSourcesByClassName() {
+        return sourcesByClassName;
+    }
+
+    /**
+     * @return name of a bean class in the middle of the creation order
+     */
+    public String getMiddleBeanClassName() {
+        return className((sourcesByClassName.size() - 1) / 2);
+    }
+
+    private void addBean(String className, List<String> parameters) {
+        int lastDot = className.lastIndexOf('.');
+        String simpleName = className.substring(lastDot + 1);
+        String source = "package " + className.substring(0, lastDot) + ";\n\n" +
+                "@javax.inject.Named\n" +
+                "public class " + simpleName + " {\n" +
+                "    public " + simpleName + "(" + String.join(", ", parameters) + ") {\n" +
+                "    }\n" +
+                "}\n";
+        sourcesByClassName.put(className, source);
+    }
+
+    private static String className(int bean) {
+        return PACKAGE + ".p" + (bean % PACKAGE_COUNT) + ".Bean" + bean;
+    }
+
+}
@@ -0,0 +1,127 @@
+package eu.nyerel.hellodi.benchmark;
+
+import eu.nyerel.hellodi.core.InjectorClassGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles and runs injectors of graphs with tens of thousands of beans, which must neither exceed the limits of a
+ * class file (64 KB of code per method, 65535 constants per class) nor generate lookups beyond their cut-offs.
+ * Each graph takes tens of seconds to compile, so the test runs only in profile {@code large-graphs}.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Tag("large-graph")
+class LargeGraphTest {
+
+    private static final int BEAN_COUNT = 20_000;
+    private static final int FAN_OUT = 3;
+
+    private Path classesDirectory;
+    private URLClassLoader loader;
+
+    @AfterEach
+    void deleteClasses() throws Exception {
+        if (loader != null) {
+            loader.close();
+        }
+        if (classesDirectory != null) {
+            GraphCompiler.delete(classesDirectory);
+        }
+    }
+
+    @Test
+    void createsGraphAboveNamedLookupLimit() throws Exception {
+        SyntheticGraph graph = new SyntheticGraph(BEAN_COUNT, FAN_OUT);
+        assertTrue(graph.getSourcesByClassName().size() > InjectorClassGenerator.MAX_NAMED_LOOKUP);
+        Class<?> injector = compile(graph);
+
+        assertInstanceOf(loader.loadClass(SyntheticGraph.ROOT_CLASS), inject(injector));
+        Class<?> middleBean = loader.loadClass(graph.getMiddleBeanClassName());
+        assertInstanceOf(middleBean, injector.getMethod("inject", Class.class).invoke(null, middleBean));
+        assertThrows(NoSuchMethodException.class, () -> injector.getMethod("inject", String.class));
+    }
+
+    @Test
+    void createsGraphAboveNamedLookupLimitLazily() throws Exception {
+        SyntheticGraph graph = new SyntheticGraph(BEAN_COUNT, FAN_OUT);
+        Class<?> injector = compile(graph, "hellodi.lazy=true");
+
+        Class<?> middleBean = loader.loadClass(graph.getMiddleBeanClassName());
+        assertInstanceOf(middleBean, injector.getMethod("inject", Class.class).invoke(null, middleBean));
+        assertInstanceOf(loader.loadClass(SyntheticGraph.ROOT_CLASS), inject(injector));
+    }
+
+    @Test
+    void createsSingletonGraphAtNamedLookupLimit() throws Exception {
+        SyntheticGraph graph = largestGraph(InjectorClassGenerator.MAX_NAMED_LOOKUP);
+        Class<?> injector = compile(graph, "hellodi.singleton=true");
+
+        Object root = inject(injector);
+        assertSame(root, inject(injector));
+        Class<?> middleBean = loader.loadClass(graph.getMiddleBeanClassName());
+        assertInstanceOf(middleBean, injector.getMethod("inject", String.class).invoke(null, beanName(middleBean)));
+        assertThrows(NoSuchMethodException.class, () -> injector.getMethod(beanName(middleBean)));
+    }
+
+    @Test
+    void createsSingletonGraphAtTypedAccessorLimit() throws Exception {
+        SyntheticGraph graph = largestGraph(InjectorClassGenerator.MAX_TYPED_ACCESSORS);
+        Class<?> injector = compile(graph, "hellodi.singleton=true");
+
+        Class<?> middleBean = loader.loadClass(graph.getMiddleBeanClassName());
+        Object bean = injector.getMethod(beanName(middleBean)).invoke(null);
+        assertInstanceOf(middleBean, bean);
+        assertSame(bean, injector.getMethod("inject", String.class).invoke(null, beanName(middleBean)));
+    }
+
+    /**
+     * @return graph of as many beans as possible, the root and group beans included
+     */
+    private static SyntheticGraph largestGraph(int maxBeans) {
+        for (int beanCount = maxBeans; ; beanCount--) {
+            SyntheticGraph graph = new SyntheticGraph(beanCount, FAN_OUT);
+            if (graph.getSourcesByClassName().size() <= maxBeans) {
+                assertEquals(maxBeans, graph.getSourcesByClassName().size(), "No graph of exactly the limit");
+                return graph;
+            }
+        }
+    }
+
+    private Class<?> compile(SyntheticGraph graph, String... options) throws ClassNotFoundException, MalformedURLException {
+        classesDirectory = GraphCompiler.createTempDirectory();
+        String[] processorOptions = new String[options.length + 1];
+        processorOptions[0] = "hellodi.injector.package=" + SyntheticGraph.PACKAGE;
+        System.arraycopy(options, 0, processorOptions, 1, options.length);
+        new GraphCompiler(graph).compile(classesDirectory, processorOptions);
+        loader = new URLClassLoader(new URL[]{classesDirectory.toUri().toURL()}, LargeGraphTest.class.getClassLoader());
+        return loader.loadClass(SyntheticGraph.INJECTOR_CLASS);
+    }
+
+    private static Object inject(Class<?> injector) throws ReflectiveOperationException {
+        try {
+            return injector.getMethod("inject").invoke(null);
+        } catch (InvocationTargetException e) {
+            throw new AssertionError("Creation of the graph failed", e.getCause());
+        }
+    }
+
+    private static String beanName(Class<?> beanClass) {
+        String simpleName = beanClass.getSimpleName();
+        return simpleName.substring(0, 1).toLowerCase() + simpleName.substring(1);
+    }
+
+}
@@ -1,9 +1,27 @@
 package eu.nyerel.hellodi;
 
+import eu.nyerel.hellodi.annotation.AsyncInit;
+import eu.nyerel.hellodi.annotation.ConfigValue;
+import eu.nyerel.hellodi.annotation.InterceptorBinding;
+import eu.nyerel.hellodi.annotation.Pooled;
+import eu.nyerel.hellodi.annotation.Profile;
+import eu.nyerel.hellodi.annotation.Warmup;
+import eu.nyerel.hellodi.core.BeanIndex;
+import eu.nyerel.hellodi.core.DependencyGraph;
 import eu.nyerel.hellodi.core.InjectorClassGenerator;
+import eu.nyerel.hellodi.core.InterceptedClassGenerator;
+import eu.nyerel.hellodi.intercept.Interceptor;
+import eu.nyerel.hellodi.intercept.Invocation;
 import eu.nyerel.hellodi.model.Bean;
+import eu.nyerel.hellodi.model.BeanType;
 import eu.nyerel.hellodi.model.BeanWiring;
 import eu.nyerel.hellodi.model.Config;
+import eu.nyerel.hellodi.model.Dependency;
+import eu.nyerel.hellodi.model.InjectionPoint;
+import eu.nyerel.hellodi.model.InterceptedClass;
+import eu.nyerel.hellodi.model.InterceptedMethod;
+import eu.nyerel.hellodi.model.Scope;
+import eu.nyerel.hellodi.pool.Pool;
 import eu.nyerel.hellodi.util.StringUtil;
 
 import javax.annotation.processing.AbstractProcessor;
@@ -14,27 +32,57 @@ import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Rastislav Papp (rastislav.papp@gmail.com)
@@ -43,6 +91,20 @@ import java.util.stream.Collectors;
         Processor.OPT_INJECTOR_NAME,
         Processor.OPT_INJECTOR_PACKAGE,
         Processor.OPT_DEBUG,
+        Processor.OPT_SINGLETON,
+        Processor.OPT_LAZY,
+        Processor.OPT_PARALLEL,
+        Processor.OPT_PARALLEL_THREADS,
+        Processor.OPT_CHUNK_SIZE,
+        Processor.OPT_SHUTDOWN_TIMEOUT,
+        Processor.OPT_JFR,
+        Processor.OPT_CDS,
+        Processor.OPT_LIBRARY,
+        Processor.OPT_LIBRARIES,
+        Processor.OPT_ROOTS,
+        Processor.OPT_PROFILES,
+        Processor.OPT_CONFIG,
+        Processor.OPT_OVERRIDES,
 })
 @SupportedAnnotationTypes({
         Processor.ANNOTATION_NAMED
@@ -54,21 +116,115 @@ public class Processor extends AbstractProcessor {
     static final String OPT_INJECTOR_NAME = "hellodi.injector.name";
     static final String OPT_INJECTOR_PACKAGE = "hellodi.injector.package";
     static final String OPT_DEBUG = "hellodi.debug";
+    static final String OPT_SINGLETON = "hellodi.singleton";
+    static final String OPT_LAZY = "hellodi.lazy";
+    static final String OPT_PARALLEL = "hellodi.parallel";
+    static final String OPT_PARALLEL_THREADS = "hellodi.parallel.threads";
+    static final String OPT_CHUNK_SIZE = "hellodi.chunk.size";
+    static final String OPT_SHUTDOWN_TIMEOUT = "hellodi.shutdown.timeout";
+    static final String OPT_JFR = "hellodi.jfr";
+    static final String OPT_CDS = "hellodi.cds";
+    static final String OPT_LIBRARY = "hellodi.library";
+    static final String OPT_LIBRARIES = "hellodi.libraries";
+    static final String OPT_ROOTS = "hellodi.roots";
+    static final String OPT_PROFILES = "hellodi.profiles";
+    static final String OPT_CONFIG = "hellodi.config";
+    static final String OPT_OVERRIDES = "hellodi.overrides";
 
     private static final String DEFAULT_INJECTOR_NAME = "Injector";
     private static final String DEFAULT_INJECTOR_PACKAGE = "eu.nyerel.hellodi";
+    private static final int DEFAULT_CHUNK_SIZE = 100;
+    private static final int DEFAULT_SHUTDOWN_TIMEOUT = 10000;
+    /**
+     * Lifecycle annotations are matched by name, so that neither of the packages defining them has to be available to
+     * the processor.
+     */
+    private static final List<String> POST_CONSTRUCT_ANNOTATIONS = List.of("javax.annotation.PostConstruct", "jakarta.annotation.PostConstruct");
+    private static final List<String> PRE_DESTROY_ANNOTATIONS = List.of("javax.annotation.PreDestroy", "jakarta.annotation.PreDestroy");
+    private static final List<String> ASYNC_INIT_ANNOTATIONS = List.of(AsyncInit.class.getName());
+    private static final List<String> WARMUP_ANNOTATIONS = List.of(Warmup.class.getName());
+    /**
+     * Scopes are annotations annotated with one of these. Singleton scope is the scope of the injector itself.
+     */
+    private static final List<String> SCOPE_ANNOTATIONS = List.of("javax.inject.Scope", "jakarta.inject.Scope");
+    private static final List<String> SINGLETON_ANNOTATIONS = List.of("javax.inject.Singleton", "jakarta.inject.Singleton");
+    /**
+     * Interceptor bindings are annotations annotated with one of these.
+     */
+    private static final List<String> INTERCEPTOR_BINDING_ANNOTATIONS = List.of(InterceptorBinding.class.getName(),
+            "javax.interceptor.InterceptorBinding", "jakarta.interceptor.InterceptorBinding");
+    private static final String BEAN_INDEX_PATH = "META-INF/hellodi/beans.index";
+    /**
+     * Library index is written to the package of the library, javac does not find resources on the classpath outside
+     * of packages (such as in {@code META-INF}).
+     */
+    private static final String LIBRARY_INDEX_NAME = "hellodi-beans.index";
+    private static final String CLASS_LIST_SUFFIX = ".classlist";
+    /**
+     * Types of parameters annotated with {@link ConfigValue}.
+     */
+    private static final List<String> CONFIG_VALUE_TYPES = List.of("int", "long", String.class.getName(), Duration.class.getName());
+    /**
+     * Keys of configuration values are written to the bean index, so they are restricted to characters not used by it.
+     */
+    private static final Pattern CONFIG_KEY_PATTERN = Pattern.compile("[\\w.-]+");
+    /**
+     * Source of the injector is streamed to the filer as it is generated, in blocks of this size.
+     */
+    private static final int SOURCE_BUFFER_SIZE = 64 * 1024;
 
-    private final Map<String, TypeElement> beanTypesByName = new HashMap<>();
+    /**
+     * Several beans may have the same name, as long as no injector holds more than one of them, see
+     * {@link #checkBeanNames()}.
+     */
+    private final Map<String, List<TypeElement>> beanTypesByName = new HashMap<>();
     private final Map<TypeElement, Set<String>> beanNamesByType = new HashMap<>();
+    /**
+     * Beans restored from the index of the previous compilation (their classes did not change since then), or from
+     * indexes of libraries, by qualified name of the bean class. They are not analyzed again.
+     */
+    private final Map<String, Bean> indexedBeans = new HashMap<>();
+    /**
+     * Qualified names of the bean classes of libraries, they are not written to the index of this compilation.
+     */
+    private final Set<String> libraryBeanTypes = new HashSet<>();
+    /**
+     * Analysis of bean classes by qualified name. Each class is analyzed in the round it is registered in (or later,
+     * if it refers to types not generated yet), and never again.
+     */
+    private final Map<String, BeanType> analyzedTypes = new HashMap<>();
+    /**
+     * Configuration values from the properties file of option {@link #OPT_CONFIG}.
+     */
+    private final Properties configValues = new Properties();
 
     private Config config;
     private InjectorClassGenerator injectorClassGenerator;
+    private final InterceptedClassGenerator interceptedClassGenerator = new InterceptedClassGenerator();
     private AtomicInteger roundCounter = new AtomicInteger(0);
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
         super.init(processingEnv);
         this.config = parseConfig();
+        Stream.concat(Stream.ofNullable(config.getLibrary()), config.getLibraries().stream())
+                .filter(library -> !SourceVersion.isName(library))
+                .forEach(library -> reportError("Invalid library '" + library + "', libraries are identified by their package"));
+        config.getProfiles().stream()
+                .filter(profile -> !SourceVersion.isIdentifier(profile))
+                .forEach(profile -> reportError("Invalid profile '" + profile + "' in option " + OPT_PROFILES +
+                        ", profiles name their injectors, so they have to be Java identifiers"));
+        if (config.getConfigFile() != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(config.getConfigFile()), StandardCharsets.UTF_8)) {
+                configValues.load(reader);
+            } catch (IOException e) {
+                reportError("Unable to read configuration values from '" + config.getConfigFile() + "' of option " +
+                        OPT_CONFIG + ": " + e);
+            }
+        }
+        if (config.isLazy() && config.isParallel()) {
+            reportMessage(Diagnostic.Kind.WARNING, "Option " + OPT_PARALLEL + " has no effect in lazy mode, beans are created on first use");
+        }
         this.injectorClassGenerator = new InjectorClassGenerator(config);
     }
 
@@ -92,9 +248,20 @@ public class Processor extends AbstractProcessor {
             debug("Elements of '" + annotation + "': " + elements);
             registerBeans(getClassElements(elements));
         }
+        analyzeBeanTypes(roundEnv.processingOver());
 
         if (roundEnv.processingOver()) {
-            if (beanTypesByName.isEmpty()) {
+            restoreBeansFromLibraries();
+            restoreBeansFromIndex();
+            if (!checkBeanNames()) {
+                debug("Skipping, beans with the same name found");
+            } else if (config.getLibrary() != null) {
+                try {
+                    writeLibraryIndex();
+                } catch (IOException e) {
+                    reportError("Error while creating library bean index: " + e.getClass() + ": " + e.getMessage());
+                }
+            } else if (beanTypesByName.isEmpty()) {
                 debug("No beans found, injector will not be created");
             } else {
                 try {
@@ -117,37 +284,338 @@ public class Processor extends AbstractProcessor {
 
     private void registerBeans(Set<TypeElement> beans) {
         debug("Registering beans: " + beans);
-        beans.forEach(b -> {
-            Named namedAnnotation = b.getAnnotation(Named.class);
-            String beanName;
-            if (namedAnnotation != null && !namedAnnotation.value().isEmpty()) {
-                beanName = namedAnnotation.value();
-            } else {
-                beanName = StringUtil.makeFirstLetterLowerCase(b.getSimpleName().toString());
-            }
-            registerBean(beanName, b);
-        });
+        beans.forEach(b -> registerBean(getBeanName(b), b));
+    }
+
+    private String getBeanName(TypeElement beanType) {
+        Named namedAnnotation = beanType.getAnnotation(Named.class);
+        if (namedAnnotation != null && !namedAnnotation.value().isEmpty()) {
+            return namedAnnotation.value();
+        } else {
+            return StringUtil.makeFirstLetterLowerCase(beanType.getSimpleName().toString());
+        }
     }
 
     private void registerBean(String beanName, TypeElement beanType) {
         debug("Registering bean " + beanName + " of type " + beanType);
         beanNamesByType.computeIfAbsent(beanType, t -> new HashSet<>()).add(beanName);
-        TypeElement existing = beanTypesByName.put(beanName, beanType);
-        if (existing != null && !existing.equals(beanType)) {
-            reportError("Detected multiple beans with the same name - " + beanName);
+        List<TypeElement> types = beanTypesByName.computeIfAbsent(beanName, n -> new ArrayList<>());
+        if (!types.contains(beanType)) {
+            types.add(beanType);
+        }
+    }
+
+    /**
+     * Beans may have the same name only if they are in different profiles, so that each injector holds one of them at
+     * most (an implementation swapped by profile). A bean without any profile is in all the injectors. Beans of a
+     * library are indexed by name, so its beans all have to have different names.
+     *
+     * @return true if no injector holds multiple beans of the same name
+     */
+    private boolean checkBeanNames() {
+        boolean valid = true;
+        for (Map.Entry<String, List<TypeElement>> entry : beanTypesByName.entrySet()) {
+            List<TypeElement> types = entry.getValue();
+            for (int i = 0; i < types.size(); i++) {
+                for (int j = i + 1; j < types.size(); j++) {
+                    List<String> profiles = getProfiles(types.get(i));
+                    List<String> otherProfiles = getProfiles(types.get(j));
+                    if (config.getLibrary() != null || profiles.isEmpty() || otherProfiles.isEmpty()
+                            || profiles.stream().anyMatch(otherProfiles::contains)) {
+                        reportError("Detected multiple beans with the same name - " + entry.getKey() + " (" +
+                                types.get(i) + " and " + types.get(j) + (config.getLibrary() != null ? ", in a library" : "") + ")");
+                        valid = false;
+                    }
+                }
+            }
+        }
+        return valid;
+    }
+
+    private List<String> getProfiles(TypeElement type) {
+        Bean indexedBean = indexedBeans.get(type.getQualifiedName().toString());
+        return indexedBean != null ? indexedBean.getProfiles() : analyzedTypes.get(type.getQualifiedName().toString()).getProfiles();
+    }
+
+    /**
+     * With incremental compilation, only the changed classes are given to the processor. The other beans are restored
+     * from the index written by the previous compilation, as long as their classes still exist and are still beans.
+     * Their analysis is reused, they are not analyzed again.
+     */
+    private void restoreBeansFromIndex() {
+        List<Bean> beans;
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", BEAN_INDEX_PATH);
+            try (Reader reader = resource.openReader(true)) {
+                beans = BeanIndex.read(reader);
+            }
+        } catch (IOException e) {
+            debug("No usable bean index of previous compilation - " + e.getMessage());
+            return;
+        }
+        Elements elements = processingEnv.getElementUtils();
+        for (Bean bean : beans) {
+            TypeElement type = elements.getTypeElement(bean.getType());
+            if (type == null) {
+                debug("Dropping indexed bean " + bean.getName() + ", its class no longer exists");
+            } else if (bean.getImplementationType() != null && elements.getTypeElement(bean.getImplementationType()) == null) {
+                debug("Dropping indexed bean " + bean.getName() + ", its intercepted subclass no longer exists");
+            } else if (!beanNamesByType.containsKey(type)) {
+                if (type.getAnnotation(Named.class) != null && bean.getName().equals(getBeanName(type))) {
+                    registerBean(bean.getName(), type);
+                    indexedBeans.put(bean.getType(), bean);
+                } else {
+                    debug("Dropping indexed bean " + bean.getName() + ", its class is no longer a bean of that name");
+                }
+            }
+        }
+        debug("Beans restored from index: " + indexedBeans.keySet());
+    }
+
+    /**
+     * Beans of libraries are read from the bean indexes the libraries were built with, on the classpath. They are wired
+     * as they were resolved when the library was compiled, their classes are not analyzed.
+     */
+    private void restoreBeansFromLibraries() {
+        Elements elements = processingEnv.getElementUtils();
+        for (String library : config.getLibraries()) {
+            String path = library.replace('.', '/') + "/" + LIBRARY_INDEX_NAME;
+            List<Bean> beans;
+            try {
+                FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_PATH, library, LIBRARY_INDEX_NAME);
+                try (Reader reader = resource.openReader(true)) {
+                    beans = BeanIndex.read(reader);
+                }
+            } catch (IOException e) {
+                reportError("Unable to read bean index of library '" + library + "' from the classpath (" + path + "): " +
+                        e + ". The library has to be compiled with option " + OPT_LIBRARY + "=" + library);
+                continue;
+            }
+            for (Bean bean : beans) {
+                TypeElement type = elements.getTypeElement(bean.getType());
+                if (type == null) {
+                    reportError("Class " + bean.getType() + " of bean '" + bean.getName() + "' from library '" +
+                            library + "' not found on the classpath");
+                } else if (!beanNamesByType.containsKey(type)) {
+                    registerBean(bean.getName(), type);
+                    indexedBeans.put(bean.getType(), bean);
+                    libraryBeanTypes.add(bean.getType());
+                }
+            }
+            debug("Beans of library '" + library + "': " + beans);
+        }
+    }
+
+    private void writeBeanIndex(List<Bean> beans) throws IOException {
+        FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", BEAN_INDEX_PATH,
+                getOriginatingElements());
+        try (Writer writer = resource.openWriter()) {
+            BeanIndex.write(withoutLibraryBeans(beans), writer);
         }
     }
 
+    /**
+     * A library gets no injector. Its beans are written to the library index, to be wired by the injectors of
+     * applications using the library. The regular bean index is written as well, for incremental compilation.
+     */
+    private void writeLibraryIndex() throws IOException {
+        Map<String, TypeElement> beanTypes = new HashMap<>();
+        beanTypesByName.forEach((name, types) -> beanTypes.put(name, types.get(0)));
+        Collection<Bean> beans = createBeans(beanTypes).values();
+        Map<String, List<String>> beanDependencyMap = new LinkedHashMap<>();
+        beans.forEach(b -> beanDependencyMap.put(b.getName(), b.getDependencies().stream()
+                .flatMap(d -> d.isMultibinding() ? Stream.empty() : d.getCreationDependencies().stream())
+                .collect(Collectors.toList())));
+        new DependencyGraph(beanDependencyMap).sort().getCycles().forEach(cycle -> {
+            reportError("Detected cyclic dependency between beans: " + String.join(" -> ", cycle));
+        });
+        FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, config.getLibrary(),
+                LIBRARY_INDEX_NAME, getOriginatingElements());
+        try (Writer writer = resource.openWriter()) {
+            BeanIndex.write(withoutLibraryBeans(beans), writer);
+        }
+        writeBeanIndex(new ArrayList<>(beans));
+    }
+
+    private List<Bean> withoutLibraryBeans(Collection<Bean> beans) {
+        return beans.stream().filter(b -> !libraryBeanTypes.contains(b.getType())).collect(Collectors.toList());
+    }
+
+    /**
+     * Without profiles, a single injector holds the beans not annotated with {@link Profile}. Otherwise each profile gets
+     * an injector of its own, named after it, holding the beans of the profile and the beans without any, with
+     * dependencies resolved among them only. The bean index holds the beans of all the injectors.
+     */
     private void writeInjectorClass() throws IOException {
-        BeanWiring beanWiring = createBeanWiring();
-        String injectorPackage = determineInjectorPackageName(beanWiring);
-        JavaFileObject jfo = createInjectorSourceFile(injectorPackage);
-        try (PrintWriter out = new PrintWriter(jfo.openWriter())) {
-            String classContent = injectorClassGenerator.generate(beanWiring, injectorPackage);
-            out.print(classContent);
+        List<String> profiles = config.getProfiles().isEmpty() ? Collections.singletonList(null)
+                : new ArrayList<>(new LinkedHashSet<>(config.getProfiles()));
+        Map<String, Bean> indexBeans = new LinkedHashMap<>();
+        for (String profile : profiles) {
+            Map<String, TypeElement> beanTypes = getProfileBeanTypes(profile);
+            String injectorName = profile == null ? config.getInjectorName()
+                    : StringUtil.makeFirstLetterUpperCase(profile) + config.getInjectorName();
+            if (beanTypes.isEmpty()) {
+                debug("No beans found for injector " + injectorName + ", it will not be created");
+                continue;
+            }
+            debug("Beans of injector " + injectorName + ": " + beanTypes.keySet());
+            BeanWiring beanWiring = createBeanWiring(beanTypes);
+            if (beanWiring == null) {
+                return;
+            }
+            writeInjectorClasses(beanWiring, injectorName, profile);
+            beanWiring.getAllBeans().forEach(bean -> indexBeans.putIfAbsent(bean.getType(), bean));
+        }
+        writeBeanIndex(new ArrayList<>(indexBeans.values()));
+    }
+
+    /**
+     * @return beans of the given profile and beans without any profile, by name
+     */
+    private Map<String, TypeElement> getProfileBeanTypes(String profile) {
+        Map<String, TypeElement> beanTypes = new HashMap<>();
+        beanTypesByName.forEach((name, types) -> types.forEach(type -> {
+            List<String> beanProfiles = getProfiles(type);
+            if (beanProfiles.isEmpty() || profile != null && beanProfiles.contains(profile)) {
+                beanTypes.put(name, type);
+            }
+        }));
+        return beanTypes;
+    }
+
+    /**
+     * Writes the injector of the given wiring, and the injectors of the root beans derived from it.
+     */
+    private void writeInjectorClasses(BeanWiring beanWiring, String injectorName, String profile) throws IOException {
+        InjectorClassGenerator generator = injectorName.equals(config.getInjectorName()) ? injectorClassGenerator
+                : new InjectorClassGenerator(config.toBuilder().injectorName(injectorName).build());
+        writeInjectorClass(beanWiring, generator, injectorName, determineInjectorPackageName(beanWiring));
+        for (String root : new LinkedHashSet<>(config.getRoots())) {
+            Bean rootBean = beanWiring.getBeans().stream().filter(b -> b.getName().equals(root)).findFirst().orElse(null);
+            if (rootBean == null || rootBean.isPooled()) {
+                reportError("Invalid root bean '" + root + "' in option " + OPT_ROOTS + ", " + (rootBean == null
+                        ? "no such bean without a scope found" : "a pooled bean can not be a root") +
+                        (profile != null ? " in profile " + profile + "." : "."));
+                continue;
+            }
+            BeanWiring rootWiring = createRootWiring(beanWiring, rootBean);
+            debug("Beans reachable from root bean " + root + ": " + rootWiring.getBeans());
+            String rootInjectorName = StringUtil.makeFirstLetterUpperCase(root) + injectorName;
+            String injectorPackage = config.getInjectorPackage() != null ? config.getInjectorPackage() : rootBean.getPackageName();
+            writeInjectorClass(rootWiring, new InjectorClassGenerator(config.toBuilder().injectorName(rootInjectorName).build()),
+                    rootInjectorName, injectorPackage);
+        }
+    }
+
+    private void writeInjectorClass(BeanWiring beanWiring, InjectorClassGenerator generator, String injectorName,
+                                    String injectorPackage) throws IOException {
+        if (config.isSingleton() && beanWiring.getBeans().size() > InjectorClassGenerator.MAX_TYPED_ACCESSORS) {
+            reportMessage(Diagnostic.Kind.WARNING, "Static accessors of beans are not generated, there are more than " +
+                    InjectorClassGenerator.MAX_TYPED_ACCESSORS + " beans. Use inject(Class) instead.");
+        }
+        if (beanWiring.getBeans().size() > InjectorClassGenerator.MAX_NAMED_LOOKUP) {
+            reportMessage(Diagnostic.Kind.WARNING, "Lookup of beans by name is not generated, there are more than " +
+                    InjectorClassGenerator.MAX_NAMED_LOOKUP + " beans. Use inject(Class) instead.");
+        }
+        JavaFileObject jfo = processingEnv.getFiler().createSourceFile(injectorPackage + "." + injectorName,
+                getOriginatingElements());
+        try (Writer writer = new BufferedWriter(jfo.openWriter(), SOURCE_BUFFER_SIZE)) {
+            generator.generate(beanWiring, injectorPackage, writer);
+        } catch (IllegalStateException e) {
+            reportError("Failed to generate injector " + injectorName + ": " + e.getMessage());
+            return;
+        }
+        if (config.isCds()) {
+            writeClassList(beanWiring, generator, injectorName, injectorPackage);
+        }
+    }
+
+    /**
+     * Injector of a root bean holds only the beans the root reaches, via any kind of dependency, so an entry point
+     * using a small part of the application loads and creates only that part. It has no scopes.
+     */
+    private BeanWiring createRootWiring(BeanWiring beanWiring, Bean root) {
+        Map<String, Bean> beansByName = new HashMap<>();
+        beanWiring.getBeans().forEach(bean -> beansByName.put(bean.getName(), bean));
+        Set<String> reachable = new HashSet<>();
+        List<String> pending = new ArrayList<>(List.of(root.getName()));
+        while (!pending.isEmpty()) {
+            Bean bean = beansByName.get(pending.remove(pending.size() - 1));
+            if (bean != null && reachable.add(bean.getName())) {
+                for (Dependency dependency : bean.getDependencies()) {
+                    if (dependency.isMultibinding()) {
+                        pending.addAll(dependency.getElementBeanNames());
+                    } else {
+                        pending.add(dependency.getBeanName());
+                    }
+                }
+            }
+        }
+        List<List<Bean>> levels = beanWiring.getLevels().stream()
+                .map(level -> level.stream().filter(bean -> reachable.contains(bean.getName())).collect(Collectors.toList()))
+                .filter(level -> !level.isEmpty())
+                .collect(Collectors.toList());
+        return BeanWiring.builder()
+                .beans(levels.stream().flatMap(List::stream).collect(Collectors.toList()))
+                .levels(levels)
+                .rootBeans(List.of(root))
+                .scopes(Collections.emptyList())
+                .build();
+    }
+
+    /**
+     * Class list in the format of {@code -XX:SharedClassListFile}, of the classes loaded when the beans are created:
+     * the injector, the bean classes and their supertypes. It is written next to the injector, together with a training
+     * entry point loading the listed classes.
+     */
+    private void writeClassList(BeanWiring beanWiring, InjectorClassGenerator generator, String injectorName,
+                                String injectorPackage) throws IOException {
+        Set<String> classNames = new LinkedHashSet<>(generator.getInjectorClassNames(beanWiring, injectorPackage));
+        List<Bean> beans = beanWiring.getAllBeans();
+        if (beans.stream().flatMap(b -> b.getDependencies().stream()).anyMatch(d -> d.getKind() == Dependency.Kind.PROVIDER)) {
+            classNames.add(Provider.class.getName());
+        }
+        if (beans.stream().anyMatch(Bean::isPooled)) {
+            classNames.add(Pool.class.getName());
+            classNames.add(Pool.Handle.class.getName());
+        }
+        if (beans.stream().anyMatch(b -> b.getImplementationType() != null)) {
+            classNames.add(Interceptor.class.getName());
+            classNames.add(Invocation.class.getName());
+        }
+        for (Bean bean : beans) {
+            collectLoadedClasses(processingEnv.getElementUtils().getTypeElement(bean.getType()), classNames);
+            if (bean.getImplementationType() != null) {
+                // top-level class, its binary name is its qualified name
+                classNames.add(bean.getImplementationType());
+            }
+        }
+        String classListName = injectorName + CLASS_LIST_SUFFIX;
+        FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, injectorPackage,
+                classListName, getOriginatingElements());
+        try (Writer writer = resource.openWriter()) {
+            for (String className : classNames) {
+                writer.write(className.replace('.', '/'));
+                writer.write('\n');
+            }
+        }
+        String trainingName = (injectorPackage.isEmpty() ? "" : injectorPackage + ".") + injectorName + "Training";
+        JavaFileObject training = processingEnv.getFiler().createSourceFile(trainingName, getOriginatingElements());
+        try (PrintWriter out = new PrintWriter(training.openWriter())) {
+            out.print(generator.generateTraining(injectorPackage, classListName));
         }
     }
 
+    /**
+     * Supertypes are collected before the type itself, in the order they are loaded.
+     */
+    private void collectLoadedClasses(TypeElement type, Set<String> classNames) {
+        for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type.asType())) {
+            collectLoadedClasses((TypeElement) ((DeclaredType) supertype).asElement(), classNames);
+        }
+        classNames.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+    }
+
     private String determineInjectorPackageName(BeanWiring beanWiring) {
         List<Bean> rootBeans = beanWiring.getRootBeans();
         if (config.getInjectorPackage() != null) {
@@ -173,9 +641,8 @@ public class Processor extends AbstractProcessor {
         }
     }
 
-    private JavaFileObject createInjectorSourceFile(String injectorPackage) throws IOException {
-        Element[] originatingElements = beanTypesByName.values().toArray(new Element[0]);
-        return processingEnv.getFiler().createSourceFile(injectorPackage + "." + config.getInjectorName(), originatingElements);
+    private Element[] getOriginatingElements() {
+        return beanNamesByType.keySet().toArray(new Element[0]);
     }
 
     private Config parseConfig() {
@@ -184,117 +651,861 @@ public class Processor extends AbstractProcessor {
                 .injectorName(opts.getOrDefault(OPT_INJECTOR_NAME, DEFAULT_INJECTOR_NAME))
                 .injectorPackage(opts.get(OPT_INJECTOR_PACKAGE))
                 .debug("true".equals(opts.get(OPT_DEBUG)))
+                .singleton("true".equals(opts.get(OPT_SINGLETON)))
+                .lazy("true".equals(opts.get(OPT_LAZY)))
+                .parallel("true".equals(opts.get(OPT_PARALLEL)))
+                .parallelThreads(parsePositiveInt(opts, OPT_PARALLEL_THREADS))
+                .chunkSize(Optional.ofNullable(parsePositiveInt(opts, OPT_CHUNK_SIZE)).orElse(DEFAULT_CHUNK_SIZE))
+                .shutdownTimeout(Optional.ofNullable(parsePositiveInt(opts, OPT_SHUTDOWN_TIMEOUT)).orElse(DEFAULT_SHUTDOWN_TIMEOUT))
+                .jfr("true".equals(opts.get(OPT_JFR)))
+                .cds("true".equals(opts.get(OPT_CDS)))
+                .library(opts.get(OPT_LIBRARY))
+                .libraries(parseList(opts, OPT_LIBRARIES))
+                .roots(parseList(opts, OPT_ROOTS))
+                .profiles(parseList(opts, OPT_PROFILES))
+                .configFile(opts.get(OPT_CONFIG))
+                .overrides("true".equals(opts.get(OPT_OVERRIDES)))
                 .build();
     }
 
-    private BeanWiring createBeanWiring() {
-        Map<String, Bean> beansByName = new HashMap<>();
-        Map<String, Set<String>> beanDependencyMap = new HashMap<>();
-        for (Map.Entry<String, TypeElement> entry : beanTypesByName.entrySet()) {
-            TypeElement type = entry.getValue();
-            Bean bean = Bean.builder()
-                    .name(entry.getKey())
-                    .type(type.getQualifiedName().toString())
-                    .packageName(type.getEnclosingElement().toString())
-                    .dependencies(computeDependencies(type))
-                    .build();
-            beansByName.put(bean.getName(), bean);
-            beanDependencyMap.put(bean.getName(), new HashSet<>(bean.getDependencies()));
-        }
-        Set<String> notYetCreated = new HashSet<>(beansByName.keySet());
-        List<String> beanCreationOrder = new ArrayList<>();
-        List<String> lastCreated = Collections.emptyList();
-        while (!notYetCreated.isEmpty()) {
-
-            List<String> canCreate = new ArrayList<>();
-            for (String bean : notYetCreated) {
-                Set<String> dependencies = beanDependencyMap.get(bean);
-                if (dependencies.isEmpty()) {
-                    canCreate.add(bean);
-                } else {
-                    boolean satisfied = dependencies.stream().allMatch(dep -> {
-                        return canCreate.contains(dep) || beanCreationOrder.contains(dep);
-                    });
-                    if (satisfied) {
-                        canCreate.add(bean);
-                    }
-                }
-            }
+    private List<String> parseList(Map<String, String> opts, String option) {
+        String value = opts.get(option);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
 
-            beanCreationOrder.addAll(canCreate);
-            notYetCreated.removeAll(canCreate);
+    private Integer parsePositiveInt(Map<String, String> opts, String option) {
+        String value = opts.get(option);
+        if (value == null) {
+            return null;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        reportError("Invalid value of option " + option + " - '" + value + "', a positive number is expected");
+        return null;
+    }
 
-            if (canCreate.isEmpty()) {
-                break;
+    /**
+     * @return the given beans by name, with dependencies resolved among them
+     */
+    private Map<String, Bean> createBeans(Map<String, TypeElement> beanTypes) {
+        Map<String, List<String>> candidatesByType = createInjectionCandidateIndex(beanTypes);
+        Map<String, List<String>> assignableBeansByType = createAssignableBeanIndex(beanTypes);
+        Map<String, List<String>> interceptorsByBinding = createInterceptorIndex(beanTypes);
+        Map<String, Bean> beansByName = new LinkedHashMap<>();
+        for (Map.Entry<String, TypeElement> entry : beanTypes.entrySet()) {
+            Bean bean = indexedBeans.get(entry.getValue().getQualifiedName().toString());
+            if (bean != null) {
+                bean = resolveIndexedDependencies(bean, candidatesByType);
             } else {
-                lastCreated = canCreate;
+                BeanType beanType = analyzedTypes.get(entry.getValue().getQualifiedName().toString());
+                bean = Bean.builder()
+                        .name(entry.getKey())
+                        .type(beanType.getType())
+                        .packageName(beanType.getPackageName())
+                        .dependencies(resolveDependencies(beanType, beanTypes, candidatesByType, interceptorsByBinding))
+                        .supertypes(beanType.getSupertypes())
+                        .postConstructMethod(beanType.getPostConstructMethod())
+                        .asyncInitMethod(beanType.getAsyncInitMethod())
+                        .destroyMethod(beanType.getDestroyMethod())
+                        .warmupMethod(beanType.getWarmupMethod())
+                        .scope(beanType.getScope())
+                        .poolSize(beanType.getPoolSize())
+                        .implementationType(beanType.getImplementationType())
+                        .interceptorBindings(beanType.getInterceptorBindings())
+                        .profiles(beanType.getProfiles())
+                        .build();
             }
+            beansByName.put(bean.getName(), resolveConfigValues(bean));
+        }
+        beansByName.replaceAll((name, bean) -> resolveMultibindings(bean, assignableBeansByType, beansByName));
+        return beansByName;
+    }
 
+    /**
+     * @return wiring of the beans, or null if the beans can not be wired into their scopes
+     */
+    private BeanWiring createBeanWiring(Map<String, TypeElement> beanTypes) {
+        Map<String, Bean> beansByName = createBeans(beanTypes);
+        Map<String, List<String>> beanDependencyMap = new LinkedHashMap<>();
+        Set<String> providedBeanNames = new HashSet<>();
+        for (Bean bean : beansByName.values()) {
+            List<String> creationDependencies = new ArrayList<>();
+            for (Dependency dependency : bean.getDependencies()) {
+                if (dependency.getKind() == Dependency.Kind.PROVIDER) {
+                    if (!beanTypes.containsKey(dependency.getBeanName())) {
+                        reportError("Unable to provide bean '" + dependency.getBeanName() + "' to bean '" +
+                                bean.getName() + "' of type " + bean.getType() + ": no such bean found.");
+                    }
+                    providedBeanNames.add(dependency.getBeanName());
+                }
+                creationDependencies.addAll(dependency.getCreationDependencies());
+            }
+            beanDependencyMap.put(bean.getName(), creationDependencies);
         }
 
-        notYetCreated.forEach(bean -> {
+        DependencyGraph.Result sortResult = new DependencyGraph(beanDependencyMap).sort();
+        sortResult.getUnknownDependencies().forEach((bean, dependencies) -> {
             String type = beansByName.get(bean).getType();
-            reportError("Unable to satisfy dependencies of bean '" + bean + "' of type " + type + ". " +
-                    "This might be a result of an incremental compilation, in which case not all the necessary " +
-                    "classes are passed to the annotation processor. This is not supported yet, and you need to perform " +
-                    "a full rebuild of the project. Otherwise there might be cyclic dependencies.");
+            reportError("Unable to satisfy dependencies " + dependencies + " of bean '" + bean + "' of type " + type + ". " +
+                    "No beans of such names were found, neither in the compiled classes, nor in the bean index of " +
+                    "previous compilation. If the beans do exist, a full rebuild of the project should fix this.");
         });
+        sortResult.getCycles().forEach(cycle -> {
+            reportError("Detected cyclic dependency between beans: " + String.join(" -> ", cycle));
+        });
+
+        if (!checkScopes(beansByName) || !checkPools(beansByName)) {
+            return null;
+        }
+
+        List<List<Bean>> levels = getScopeLevels(sortResult.getLevels(), null, beansByName);
+        List<Bean> rootBeans = levels.isEmpty() ? Collections.emptyList() : levels.get(levels.size() - 1).stream()
+                .filter(bean -> !providedBeanNames.contains(bean.getName()) && !bean.isPooled())
+                .collect(Collectors.toList());
+        debug("Root beans: " + rootBeans);
+        List<Scope> scopes = beansByName.values().stream()
+                .map(Bean::getScope)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .map(scope -> {
+                    List<List<Bean>> scopeLevels = getScopeLevels(sortResult.getLevels(), scope, beansByName);
+                    return Scope.builder()
+                            .annotation(scope)
+                            .beans(scopeLevels.stream().flatMap(List::stream).collect(Collectors.toList()))
+                            .levels(scopeLevels)
+                            .build();
+                })
+                .collect(Collectors.toList());
 
         return BeanWiring.builder()
-                .beans(toBeans(beanCreationOrder, beansByName))
-                .rootBeans(findRootBeans(lastCreated, beansByName))
+                .beans(levels.stream().flatMap(List::stream).collect(Collectors.toList()))
+                .levels(levels)
+                .rootBeans(rootBeans)
+                .scopes(scopes)
                 .build();
     }
 
-    private List<Bean> findRootBeans(List<String> possibleRootBeanNames, Map<String, Bean> beansByName) {
-        Set<String> rootBeanNames = new HashSet<>(possibleRootBeanNames);
-        possibleRootBeanNames.stream()
-                .map(beansByName::get)
-                .forEach(b -> rootBeanNames.removeAll(b.getDependencies()));
-        debug("Root beans: " + rootBeanNames);
-        return toBeans(rootBeanNames, beansByName);
+    /**
+     * Beans of a scope are held by a child injector, which refers to the beans of the injector and of its own scope
+     * only. So beans without a scope can not depend on scoped beans (not even via a provider), and scoped beans can
+     * not depend on beans of other scopes.
+     *
+     * @return true if the beans can be wired into their scopes
+     */
+    private boolean checkScopes(Map<String, Bean> beansByName) {
+        boolean valid = true;
+        Map<String, String> scopeClassNames = new HashMap<>();
+        for (Bean bean : beansByName.values()) {
+            if (bean.getScope() != null) {
+                String simpleName = bean.getScope().substring(bean.getScope().lastIndexOf('.') + 1);
+                String existing = scopeClassNames.putIfAbsent(simpleName, bean.getScope());
+                if (existing != null && !existing.equals(bean.getScope())) {
+                    reportError("Scopes " + existing + " and " + bean.getScope() + " have the same simple name, " +
+                            "which is the name of their child injector class.");
+                    valid = false;
+                }
+            }
+            for (Dependency dependency : bean.getDependencies()) {
+                Bean target = dependency.isMultibinding() ? null : beansByName.get(dependency.getBeanName());
+                if (target != null && target.getScope() != null && !target.getScope().equals(bean.getScope())) {
+                    reportError("Unable to wire bean '" + target.getName() + "' of scope @" + target.getScope() +
+                            " into bean '" + bean.getName() + "' of type " + bean.getType() + (bean.getScope() == null
+                            ? ", which has no scope" : " of scope @" + bean.getScope()) + ". Beans can depend only " +
+                            "on beans without a scope, and on beans of their own scope.");
+                    valid = false;
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Instances of a pooled bean are borrowed from its pool, so the bean can be injected only as the pool.
+     *
+     * @return true if the pooled beans are injected as pools, and only them
+     */
+    private boolean checkPools(Map<String, Bean> beansByName) {
+        boolean valid = true;
+        for (Bean bean : beansByName.values()) {
+            for (Dependency dependency : bean.getDependencies()) {
+                Bean target = dependency.isMultibinding() ? null : beansByName.get(dependency.getBeanName());
+                if (target == null) {
+                    continue;
+                }
+                if (target.isPooled() && dependency.getKind() != Dependency.Kind.POOL) {
+                    reportError("Unable to wire pooled bean '" + target.getName() + "' into bean '" + bean.getName() +
+                            "' of type " + bean.getType() + ". Pooled beans can be injected only as " +
+                            Pool.class.getName() + "<" + target.getType() + ">.");
+                    valid = false;
+                } else if (!target.isPooled() && dependency.getKind() == Dependency.Kind.POOL) {
+                    reportError("Unable to wire pool of bean '" + target.getName() + "' into bean '" + bean.getName() +
+                            "' of type " + bean.getType() + ", the bean is not annotated with @" +
+                            Pooled.class.getSimpleName() + ".");
+                    valid = false;
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * @return levels of the beans of the given scope (null for beans without a scope), without the empty levels
+     */
+    private List<List<Bean>> getScopeLevels(List<List<String>> levels, String scope, Map<String, Bean> beansByName) {
+        return levels.stream()
+                .map(level -> toBeans(level, beansByName).stream()
+                        .filter(bean -> Objects.equals(bean.getScope(), scope))
+                        .collect(Collectors.toList()))
+                .filter(level -> !level.isEmpty())
+                .collect(Collectors.toList());
     }
 
     private List<Bean> toBeans(Collection<String> beanNames, Map<String, Bean> beansByName) {
         return beanNames.stream().map(beansByName::get).collect(Collectors.toList());
     }
 
-    private List<String> computeDependencies(TypeElement value) {
-        ExecutableElement constructor = findConstructorToUseForInjection(value);
+    /**
+     * Analyzes bean classes registered so far, which were not analyzed yet. Analysis of a class referring to a type
+     * which does not exist yet is postponed, the type may be generated in a later round.
+     */
+    private void analyzeBeanTypes(boolean lastRound) {
+        for (TypeElement type : beanNamesByType.keySet()) {
+            String typeName = type.getQualifiedName().toString();
+            if (!analyzedTypes.containsKey(typeName)) {
+                BeanType beanType = analyzeBeanType(type, lastRound);
+                if (beanType != null) {
+                    analyzedTypes.put(typeName, beanType);
+                } else {
+                    debug("Analysis of " + typeName + " postponed, it refers to types not generated yet");
+                }
+            }
+        }
+    }
+
+    private BeanType analyzeBeanType(TypeElement type, boolean lastRound) {
+        ExecutableElement constructor = findConstructorToUseForInjection(type);
+        List<InjectionPoint> injectionPoints = new ArrayList<>();
         if (constructor != null) {
-            List<String> dependencies = new ArrayList<>();
             for (VariableElement parameter : constructor.getParameters()) {
+                TypeMirror parameterType = parameter.asType();
+                ConfigValue configValue = parameter.getAnnotation(ConfigValue.class);
+                if (configValue != null) {
+                    String valueType = getTypeName(parameterType);
+                    if (!CONFIG_VALUE_TYPES.contains(valueType)) {
+                        reportError("Parameter " + parameter + " of " + constructor + " annotated with @" +
+                                ConfigValue.class.getSimpleName() + " has to be of one of types " + CONFIG_VALUE_TYPES + ".");
+                    } else if (!CONFIG_KEY_PATTERN.matcher(configValue.value()).matches()) {
+                        reportError("Invalid configuration key '" + configValue.value() + "' of parameter " + parameter +
+                                " of " + constructor + ", it may contain only letters, digits, '_', '.' and '-'.");
+                    }
+                    injectionPoints.add(InjectionPoint.builder()
+                            .parameterName(parameter.getSimpleName().toString())
+                            .type(valueType)
+                            .kind(configValue.runtime() ? Dependency.Kind.RUNTIME_VALUE : Dependency.Kind.VALUE)
+                            .configKey(configValue.value())
+                            .build());
+                    continue;
+                }
                 Named named = parameter.getAnnotation(Named.class);
-                if (named != null && !named.value().isEmpty()) {
-                    dependencies.add(named.value());
+                String qualifier = named != null && !named.value().isEmpty() ? named.value() : null;
+                Dependency.Kind kind = qualifier == null ? getMultibindingKind(parameterType) : null;
+                if (kind != null) {
+                    List<? extends TypeMirror> typeArguments = ((DeclaredType) parameterType).getTypeArguments();
+                    parameterType = getUpperBound(typeArguments.get(typeArguments.size() - 1));
                 } else {
-                    List<String> candidateBeans = findInjectionCandidatesForType(parameter);
-                    if (candidateBeans.size() == 1) {
-                        dependencies.add(candidateBeans.get(0));
-                    } else {
-                        String dep = parameter.getSimpleName().toString();
-                        if (!beanTypesByName.containsKey(dep)) {
-                            reportError("Unable to wire '" + dep + "' into " + constructor + ": no bean named '" + dep + "' found.");
-                            return Collections.emptyList();
-                        }
-                        dependencies.add(dep);
+                    kind = Dependency.Kind.INSTANCE;
+                    TypeMirror providedType = getTypeArgument(parameterType, Provider.class.getName());
+                    TypeMirror pooledType = getTypeArgument(parameterType, Pool.class.getName());
+                    if (providedType != null) {
+                        parameterType = providedType;
+                        kind = Dependency.Kind.PROVIDER;
+                    } else if (pooledType != null) {
+                        parameterType = pooledType;
+                        kind = Dependency.Kind.POOL;
                     }
                 }
+                if (parameterType.getKind() == TypeKind.ERROR && !lastRound) {
+                    return null;
+                }
+                injectionPoints.add(InjectionPoint.builder()
+                        .parameterName(parameter.getSimpleName().toString())
+                        .type(getTypeName(parameterType))
+                        .qualifier(qualifier)
+                        .kind(kind)
+                        .build());
             }
-            return dependencies;
-        } else {
-            return Collections.emptyList();
         }
+        List<String> supertypes = computeSupertypes(type);
+        boolean interceptor = supertypes.contains(Interceptor.class.getName());
+        Map<ExecutableElement, List<String>> interceptedMethods = interceptor || constructor == null
+                ? Collections.emptyMap() : findInterceptedMethods(type, supertypes);
+        if (!lastRound && interceptedMethods.keySet().stream().anyMatch(this::refersToMissingTypes)) {
+            return null;
+        }
+        List<String> interceptorBindings = interceptor ? getInterceptorBindings(type) : Collections.emptyList();
+        if (interceptor && interceptorBindings.isEmpty()) {
+            reportError("Interceptor " + type + " has no interceptor binding. It has to be annotated with an annotation " +
+                    "annotated with @" + InterceptorBinding.class.getSimpleName() + ".");
+        }
+        String implementationType = null;
+        if (!interceptedMethods.isEmpty()) {
+            InterceptedClass interceptedClass = createInterceptedClass(type, constructor, interceptedMethods);
+            if (interceptedClass != null) {
+                writeInterceptedClass(interceptedClass, type);
+                implementationType = interceptedClass.getQualifiedName();
+                interceptedClass.getBindings().forEach(binding -> injectionPoints.add(InjectionPoint.builder()
+                        .parameterName(StringUtil.makeFirstLetterLowerCase(binding.substring(binding.lastIndexOf('.') + 1)))
+                        .type(Interceptor.class.getName())
+                        .kind(Dependency.Kind.INSTANCE)
+                        .interceptorBinding(binding)
+                        .build()));
+            }
+        }
+        String destroyMethod = getMethodName(findLifecycleMethod(type, PRE_DESTROY_ANNOTATIONS));
+        if (destroyMethod == null && supertypes.contains(AutoCloseable.class.getName())) {
+            destroyMethod = "close";
+        }
+        ExecutableElement asyncInitMethod = findLifecycleMethod(type, ASYNC_INIT_ANNOTATIONS);
+        if (asyncInitMethod != null && !isCompletionStage(asyncInitMethod.getReturnType())) {
+            reportError("Method " + asyncInitMethod + " of " + type + " annotated with @" + AsyncInit.class.getSimpleName() +
+                    " has to return " + CompletionStage.class.getName() + ".");
+            asyncInitMethod = null;
+        }
+        String scope = findScope(type);
+        ExecutableElement warmupMethod = findLifecycleMethod(type, WARMUP_ANNOTATIONS);
+        if (warmupMethod != null && scope != null) {
+            reportError("Method " + warmupMethod + " of " + type + " annotated with @" + Warmup.class.getSimpleName() +
+                    " can not warm up a bean with scope @" + scope + ", beans of scopes are not held by the injector.");
+            warmupMethod = null;
+        }
+        Pooled pooled = type.getAnnotation(Pooled.class);
+        if (pooled != null && pooled.size() < 0) {
+            reportError("Invalid pool size of " + type + " - " + pooled.size() + ", it can not be negative.");
+        }
+        if (pooled != null && scope != null) {
+            reportError("Pooled bean " + type + " can not have scope @" + scope + ", instances of pooled beans are " +
+                    "not held by any injector.");
+        }
+        Profile profile = type.getAnnotation(Profile.class);
+        if (profile != null && profile.value().length == 0) {
+            reportError("Bean " + type + " annotated with @" + Profile.class.getSimpleName() + " has to list its profiles.");
+        }
+        return BeanType.builder()
+                .type(type.getQualifiedName().toString())
+                .packageName(type.getEnclosingElement().toString())
+                .constructor(String.valueOf(constructor))
+                .injectionPoints(injectionPoints)
+                .supertypes(supertypes)
+                .postConstructMethod(getMethodName(findLifecycleMethod(type, POST_CONSTRUCT_ANNOTATIONS)))
+                .asyncInitMethod(getMethodName(asyncInitMethod))
+                .destroyMethod(destroyMethod)
+                .warmupMethod(getMethodName(warmupMethod))
+                .scope(scope)
+                .poolSize(pooled != null ? pooled.size() : null)
+                .implementationType(implementationType)
+                .interceptorBindings(interceptorBindings)
+                .profiles(profile != null ? List.of(profile.value()) : Collections.emptyList())
+                .build();
     }
 
-    private List<String> findInjectionCandidatesForType(VariableElement param) {
-        TypeElement type = (TypeElement) ((DeclaredType) param.asType()).asElement();
-        Set<String> names = beanNamesByType.get(type);
-        if (names == null) {
-            return Collections.emptyList();
+    /**
+     * @return qualified names of the interceptor bindings the given class or method is annotated with
+     */
+    private List<String> getInterceptorBindings(Element element) {
+        return element.getAnnotationMirrors().stream()
+                .map(a -> (TypeElement) a.getAnnotationType().asElement())
+                .filter(a -> a.getAnnotationMirrors().stream()
+                        .anyMatch(m -> INTERCEPTOR_BINDING_ANNOTATIONS.contains(getTypeName(m.getAnnotationType()))))
+                .map(a -> a.getQualifiedName().toString())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Bindings of the bean class apply to all its public and protected methods, except the lifecycle methods and the
+     * methods of {@link Object}. Bindings of the methods apply to the methods themselves, after the bindings of the
+     * class.
+     *
+     * @return bindings of the intercepted methods of the bean class, the outermost first
+     */
+    private Map<ExecutableElement, List<String>> findInterceptedMethods(TypeElement type, List<String> supertypes) {
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement object = elements.getTypeElement(Object.class.getName());
+        List<ExecutableElement> objectMethods = ElementFilter.methodsIn(object.getEnclosedElements());
+        List<String> classBindings = getInterceptorBindings(type);
+        Map<ExecutableElement, List<String>> interceptedMethods = new LinkedHashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            boolean overridable = (modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.PROTECTED))
+                    && !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.FINAL);
+            List<String> methodBindings = getInterceptorBindings(method);
+            if (!methodBindings.isEmpty() && !overridable) {
+                reportError("Method " + method + " of " + type + " bound to interceptors has to be public or protected, " +
+                        "not static and not final.");
+                continue;
+            }
+            boolean businessMethod = overridable && !method.getEnclosingElement().equals(object)
+                    && objectMethods.stream().noneMatch(m -> elements.overrides(method, m, type))
+                    && !isLifecycleMethod(method, supertypes);
+            List<String> bindings = new ArrayList<>(businessMethod ? classBindings : Collections.emptyList());
+            methodBindings.stream().filter(b -> !bindings.contains(b)).forEach(bindings::add);
+            if (!bindings.isEmpty()) {
+                interceptedMethods.put(method, bindings);
+            }
+        }
+        if (!interceptedMethods.isEmpty() && (type.getModifiers().contains(Modifier.FINAL) || !type.getTypeParameters().isEmpty())) {
+            reportError("Bean " + type + " bound to interceptors can not be final nor generic, it is subclassed to call " +
+                    "the interceptors.");
+            return Collections.emptyMap();
+        }
+        return interceptedMethods;
+    }
+
+    private boolean isLifecycleMethod(ExecutableElement method, List<String> supertypes) {
+        boolean annotated = method.getAnnotationMirrors().stream()
+                .map(a -> getTypeName(a.getAnnotationType()))
+                .anyMatch(a -> POST_CONSTRUCT_ANNOTATIONS.contains(a) || PRE_DESTROY_ANNOTATIONS.contains(a)
+                        || ASYNC_INIT_ANNOTATIONS.contains(a) || WARMUP_ANNOTATIONS.contains(a));
+        boolean close = supertypes.contains(AutoCloseable.class.getName())
+                && method.getSimpleName().contentEquals("close") && method.getParameters().isEmpty();
+        return annotated || close;
+    }
+
+    private boolean refersToMissingTypes(ExecutableElement method) {
+        return Stream.of(Stream.of(method.getReturnType()), method.getParameters().stream().map(Element::asType),
+                        method.getThrownTypes().stream())
+                .flatMap(s -> s)
+                .anyMatch(t -> t.getKind() == TypeKind.ERROR);
+    }
+
+    /**
+     * @return model of the subclass of the bean class calling the interceptors, or null if it can not be generated
+     */
+    private InterceptedClass createInterceptedClass(TypeElement type, ExecutableElement constructor,
+                                                    Map<ExecutableElement, List<String>> interceptedMethods) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror exception = elements.getTypeElement(Exception.class.getName()).asType();
+        TypeMirror runtimeException = elements.getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = elements.getTypeElement(Error.class.getName()).asType();
+        List<String> bindings = new ArrayList<>();
+        List<InterceptedMethod> methods = new ArrayList<>();
+        for (Map.Entry<ExecutableElement, List<String>> entry : interceptedMethods.entrySet()) {
+            ExecutableElement method = entry.getKey();
+            ExecutableType methodType = (ExecutableType) types.asMemberOf((DeclaredType) type.asType(), method);
+            List<? extends TypeMirror> thrownTypes = methodType.getThrownTypes();
+            if (thrownTypes.stream().anyMatch(t -> t.getKind() == TypeKind.TYPEVAR)) {
+                reportError("Method " + method + " of " + type + " can not be intercepted, it throws an exception of a " +
+                        "type variable.");
+                return null;
+            }
+            List<TypeMirror> checkedTypes = thrownTypes.stream()
+                    .filter(t -> !types.isSubtype(t, runtimeException) && !types.isSubtype(t, error))
+                    .collect(Collectors.toList());
+            entry.getValue().stream().filter(b -> !bindings.contains(b)).forEach(bindings::add);
+            methods.add(InterceptedMethod.builder()
+                    .name(method.getSimpleName().toString())
+                    .modifier(method.getModifiers().contains(Modifier.PUBLIC) ? "public" : "protected")
+                    .typeParameters(getTypeParameterDeclaration(method.getTypeParameters()))
+                    .returnType(methodType.getReturnType().toString())
+                    .parameterTypes(getParameterTypes(methodType.getParameterTypes(), method.isVarArgs()))
+                    .parameterNames(method.getParameters().stream().map(p -> p.getSimpleName().toString()).collect(Collectors.toList()))
+                    .thrownTypes(thrownTypes.stream().map(TypeMirror::toString).collect(Collectors.toList()))
+                    .rethrownTypes(checkedTypes.stream()
+                            .filter(t -> checkedTypes.stream().noneMatch(o -> !types.isSameType(t, o) && types.isSubtype(t, o)))
+                            .map(TypeMirror::toString)
+                            .collect(Collectors.toList()))
+                    .throwingAll(thrownTypes.stream().anyMatch(t -> types.isSubtype(exception, t)))
+                    .bindings(entry.getValue())
+                    .build());
+        }
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        return InterceptedClass.builder()
+                .packageName(packageName)
+                .simpleName("Intercepted" + binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$', '_'))
+                .superclass(type.getQualifiedName().toString())
+                .constructorParameterTypes(getParameterTypes(constructor.getParameters().stream()
+                        .map(Element::asType).collect(Collectors.toList()), constructor.isVarArgs()))
+                .constructorParameterNames(constructor.getParameters().stream()
+                        .map(p -> p.getSimpleName().toString()).collect(Collectors.toList()))
+                .constructorThrownTypes(constructor.getThrownTypes().stream().map(TypeMirror::toString).collect(Collectors.toList()))
+                .bindings(bindings)
+                .methods(methods)
+                .build();
+    }
+
+    private static List<String> getParameterTypes(List<? extends TypeMirror> parameterTypes, boolean varArgs) {
+        List<String> typeNames = new ArrayList<>();
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            TypeMirror parameterType = parameterTypes.get(i);
+            if (varArgs && i == parameterTypes.size() - 1) {
+                typeNames.add(((ArrayType) parameterType).getComponentType() + "...");
+            } else {
+                typeNames.add(parameterType.toString());
+            }
+        }
+        return typeNames;
+    }
+
+    /**
+     * @return declaration of the type parameters, such as {@code <T extends java.lang.Number>}, or empty string
+     */
+    private static String getTypeParameterDeclaration(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        return typeParameters.stream()
+                .map(p -> {
+                    List<String> bounds = p.getBounds().stream()
+                            .map(TypeMirror::toString)
+                            .filter(b -> !Object.class.getName().equals(b))
+                            .collect(Collectors.toList());
+                    return p.getSimpleName() + (bounds.isEmpty() ? "" : " extends " + String.join(" & ", bounds));
+                })
+                .collect(Collectors.joining(", ", "<", ">"));
+    }
+
+    private void writeInterceptedClass(InterceptedClass interceptedClass, TypeElement type) {
+        try {
+            JavaFileObject source = processingEnv.getFiler().createSourceFile(interceptedClass.getQualifiedName(), type);
+            try (Writer writer = new BufferedWriter(source.openWriter())) {
+                interceptedClassGenerator.generate(interceptedClass, writer);
+            }
+        } catch (IOException e) {
+            reportError("Error while creating intercepted subclass of " + type + ": " + e.getClass() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return qualified name of the scope annotation of the bean class, or null if there is none (or it is a
+     * singleton, as all the beans held by the injector are)
+     */
+    private String findScope(TypeElement type) {
+        List<String> scopes = type.getAnnotationMirrors().stream()
+                .map(a -> (TypeElement) a.getAnnotationType().asElement())
+                .filter(a -> a.getAnnotationMirrors().stream()
+                        .anyMatch(m -> SCOPE_ANNOTATIONS.contains(getTypeName(m.getAnnotationType()))))
+                .map(a -> a.getQualifiedName().toString())
+                .filter(name -> !SINGLETON_ANNOTATIONS.contains(name))
+                .collect(Collectors.toList());
+        if (scopes.size() > 1) {
+            reportError("Multiple scopes of " + type + " - " + scopes + ". There must be at most one.");
+            return null;
+        }
+        return scopes.isEmpty() ? null : scopes.get(0);
+    }
+
+    /**
+     * @return method of the bean class (declared or inherited) annotated with one of the given annotations, or null if
+     * there is none
+     */
+    private ExecutableElement findLifecycleMethod(TypeElement type, List<String> annotationNames) {
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type)).stream()
+                .filter(m -> m.getAnnotationMirrors().stream()
+                        .anyMatch(a -> annotationNames.contains(getTypeName(a.getAnnotationType()))))
+                .collect(Collectors.toList());
+        if (methods.isEmpty()) {
+            return null;
+        }
+        String annotation = "@" + annotationNames.get(0).substring(annotationNames.get(0).lastIndexOf('.') + 1);
+        ExecutableElement method = methods.get(0);
+        if (methods.size() > 1) {
+            reportError("Multiple methods of " + type + " annotated with " + annotation + " - " + methods + ". There must be at most one.");
+            return null;
+        }
+        if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)
+                || !method.getParameters().isEmpty()) {
+            reportError("Method " + method + " of " + type + " annotated with " + annotation + " has to be public, not static and without parameters.");
+            return null;
+        }
+        return method;
+    }
+
+    private static String getMethodName(ExecutableElement method) {
+        return method != null ? method.getSimpleName().toString() : null;
+    }
+
+    private boolean isCompletionStage(TypeMirror type) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror completionStage = processingEnv.getElementUtils().getTypeElement(CompletionStage.class.getName()).asType();
+        return types.isAssignable(types.erasure(type), types.erasure(completionStage));
+    }
+
+    /**
+     * @return bound of a wildcard like {@code ? extends Handler}, or the given type if it is not a wildcard
+     */
+    private TypeMirror getUpperBound(TypeMirror type) {
+        if (type.getKind() == TypeKind.WILDCARD) {
+            TypeMirror bound = ((WildcardType) type).getExtendsBound();
+            return bound != null ? bound : processingEnv.getElementUtils().getTypeElement(Object.class.getName()).asType();
+        }
+        return type;
+    }
+
+    private static String getTypeName(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
         } else {
-            return new ArrayList<>(names);
+            return type.toString();
+        }
+    }
+
+    private List<String> computeSupertypes(TypeElement type) {
+        Set<String> supertypes = new LinkedHashSet<>();
+        collectSupertypes(type.asType(), supertypes);
+        return new ArrayList<>(supertypes);
+    }
+
+    private void collectSupertypes(TypeMirror type, Set<String> supertypes) {
+        for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type)) {
+            TypeElement element = (TypeElement) ((DeclaredType) supertype).asElement();
+            if (element.getModifiers().contains(Modifier.PUBLIC)
+                    && !Object.class.getName().equals(element.getQualifiedName().toString())) {
+                supertypes.add(element.getQualifiedName().toString());
+            }
+            collectSupertypes(supertype, supertypes);
+        }
+    }
+
+    /**
+     * Names of beans which can be injected into a parameter of a type, by qualified name of the type. Beans of the
+     * type itself take precedence, beans of its subtypes are candidates only if there is no bean of the exact type.
+     */
+    private Map<String, List<String>> createInjectionCandidateIndex(Map<String, TypeElement> beanTypes) {
+        Map<String, List<String>> beansByType = new HashMap<>();
+        Map<String, List<String>> beansBySupertype = new HashMap<>();
+        beanTypes.forEach((name, type) -> {
+            Bean indexedBean = indexedBeans.get(type.getQualifiedName().toString());
+            BeanType beanType = analyzedTypes.get(type.getQualifiedName().toString());
+            String typeName = indexedBean != null ? indexedBean.getType() : beanType.getType();
+            List<String> supertypes = indexedBean != null ? indexedBean.getSupertypes() : beanType.getSupertypes();
+            beansByType.computeIfAbsent(typeName, t -> new ArrayList<>()).add(name);
+            supertypes.forEach(t -> beansBySupertype.computeIfAbsent(t, k -> new ArrayList<>()).add(name));
+        });
+        beansBySupertype.putAll(beansByType);
+        return beansBySupertype;
+    }
+
+    /**
+     * Names of all the beans assignable to a type, by qualified name of the type, ordered by bean name.
+     */
+    private Map<String, List<String>> createAssignableBeanIndex(Map<String, TypeElement> beanTypes) {
+        Map<String, List<String>> beansByType = new HashMap<>();
+        beanTypes.forEach((name, type) -> {
+            Bean indexedBean = indexedBeans.get(type.getQualifiedName().toString());
+            BeanType beanType = analyzedTypes.get(type.getQualifiedName().toString());
+            String typeName = indexedBean != null ? indexedBean.getType() : beanType.getType();
+            List<String> supertypes = indexedBean != null ? indexedBean.getSupertypes() : beanType.getSupertypes();
+            beansByType.computeIfAbsent(typeName, t -> new ArrayList<>()).add(name);
+            supertypes.forEach(t -> beansByType.computeIfAbsent(t, k -> new ArrayList<>()).add(name));
+        });
+        beansByType.values().forEach(Collections::sort);
+        return beansByType;
+    }
+
+    /**
+     * Names of the interceptors implementing each interceptor binding, by qualified name of the binding.
+     */
+    private Map<String, List<String>> createInterceptorIndex(Map<String, TypeElement> beanTypes) {
+        Map<String, List<String>> interceptorsByBinding = new HashMap<>();
+        beanTypes.forEach((name, type) -> {
+            Bean indexedBean = indexedBeans.get(type.getQualifiedName().toString());
+            List<String> bindings = indexedBean != null ? indexedBean.getInterceptorBindings()
+                    : analyzedTypes.get(type.getQualifiedName().toString()).getInterceptorBindings();
+            bindings.forEach(b -> interceptorsByBinding.computeIfAbsent(b, k -> new ArrayList<>()).add(name));
+        });
+        interceptorsByBinding.values().forEach(Collections::sort);
+        return interceptorsByBinding;
+    }
+
+    /**
+     * Collections of beans include only the beans the dependent bean can depend on, see {@link #checkScopes}. Pooled
+     * beans are not included, they can be injected only as pools.
+     */
+    private Bean resolveMultibindings(Bean bean, Map<String, List<String>> assignableBeansByType, Map<String, Bean> beansByName) {
+        if (bean.getDependencies().stream().noneMatch(Dependency::isMultibinding)) {
+            return bean;
+        }
+        List<Dependency> dependencies = bean.getDependencies().stream()
+                .map(d -> !d.isMultibinding() ? d : d.toBuilder()
+                        .elementBeanNames(assignableBeansByType.getOrDefault(d.getElementType(), Collections.emptyList()).stream()
+                                .filter(name -> !name.equals(bean.getName()))
+                                .filter(name -> !beansByName.get(name).isPooled())
+                                .filter(name -> {
+                                    String scope = beansByName.get(name).getScope();
+                                    return scope == null || scope.equals(bean.getScope());
+                                })
+                                .collect(Collectors.toList()))
+                        .build())
+                .collect(Collectors.toList());
+        debug("Multibindings of bean " + bean.getName() + ": " + dependencies.stream()
+                .filter(Dependency::isMultibinding)
+                .map(d -> d.getKind() + "<" + d.getElementType() + "> " + d.getElementBeanNames())
+                .collect(Collectors.toList()));
+        return bean.toBuilder().dependencies(dependencies).build();
+    }
+
+    private List<Dependency> resolveDependencies(BeanType beanType, Map<String, TypeElement> beanTypes,
+                                                 Map<String, List<String>> candidatesByType,
+                                                 Map<String, List<String>> interceptorsByBinding) {
+        List<Dependency> dependencies = new ArrayList<>();
+        for (InjectionPoint injectionPoint : beanType.getInjectionPoints()) {
+            if (injectionPoint.getInterceptorBinding() != null) {
+                String binding = injectionPoint.getInterceptorBinding();
+                List<String> interceptors = interceptorsByBinding.getOrDefault(binding, Collections.emptyList());
+                if (interceptors.size() != 1) {
+                    reportError((interceptors.isEmpty() ? "No interceptor" : "Multiple interceptors " + interceptors) +
+                            " of binding @" + binding + " found for bean of type " + beanType.getType() +
+                            ", there has to be exactly one.");
+                    return Collections.emptyList();
+                }
+                dependencies.add(Dependency.builder().beanName(interceptors.get(0)).kind(Dependency.Kind.INSTANCE).build());
+                continue;
+            }
+            if (injectionPoint.getConfigKey() != null) {
+                dependencies.add(Dependency.builder()
+                        .configKey(injectionPoint.getConfigKey())
+                        .injectedType(injectionPoint.getType())
+                        .kind(injectionPoint.getKind())
+                        .build());
+                continue;
+            }
+            if (injectionPoint.getKind() != Dependency.Kind.INSTANCE && injectionPoint.getKind() != Dependency.Kind.PROVIDER
+                    && injectionPoint.getKind() != Dependency.Kind.POOL) {
+                dependencies.add(Dependency.builder().elementType(injectionPoint.getType()).kind(injectionPoint.getKind()).build());
+                continue;
+            }
+            String dep;
+            String injectedType = null;
+            if (injectionPoint.getQualifier() != null) {
+                dep = injectionPoint.getQualifier();
+            } else {
+                List<String> candidateBeans = candidatesByType.getOrDefault(injectionPoint.getType(), Collections.emptyList());
+                if (candidateBeans.size() == 1) {
+                    dep = candidateBeans.get(0);
+                    injectedType = injectionPoint.getType();
+                } else {
+                    dep = injectionPoint.getParameterName();
+                    // beans of a library may depend on beans of the applications using it
+                    if (!beanTypes.containsKey(dep) && config.getLibrary() == null) {
+                        reportError("Unable to wire '" + dep + "' into " + beanType.getConstructor() + ": no bean named '" + dep + "' found.");
+                        return Collections.emptyList();
+                    }
+                }
+            }
+            dependencies.add(Dependency.builder().beanName(dep).injectedType(injectedType).kind(injectionPoint.getKind()).build());
+        }
+        return dependencies;
+    }
+
+    /**
+     * Configuration values are resolved on each compilation, from the current properties file. A library does not
+     * need them, they are resolved by the applications using it.
+     */
+    private Bean resolveConfigValues(Bean bean) {
+        if (bean.getDependencies().stream().noneMatch(Dependency::isConfigValue)) {
+            return bean;
+        }
+        List<Dependency> dependencies = new ArrayList<>();
+        for (Dependency dependency : bean.getDependencies()) {
+            if (dependency.isConfigValue()) {
+                String value = configValues.getProperty(dependency.getConfigKey());
+                if (value == null && dependency.getKind() == Dependency.Kind.VALUE && config.getLibrary() == null) {
+                    reportError("Configuration value '" + dependency.getConfigKey() + "' of bean '" + bean.getName() +
+                            "' of type " + bean.getType() + " not found" + (config.getConfigFile() == null
+                            ? ", option " + OPT_CONFIG + " is not set." : " in " + config.getConfigFile() + "."));
+                } else if (value != null && !isValidConfigValue(value, dependency.getInjectedType())) {
+                    reportError("Invalid configuration value '" + dependency.getConfigKey() + "' of bean '" +
+                            bean.getName() + "' - '" + value + "', " + dependency.getInjectedType() + " is expected.");
+                }
+                dependency = dependency.toBuilder().value(value).build();
+            }
+            dependencies.add(dependency);
+        }
+        return bean.toBuilder().dependencies(dependencies).build();
+    }
+
+    private static boolean isValidConfigValue(String value, String type) {
+        try {
+            if ("int".equals(type)) {
+                Integer.parseInt(value.trim());
+            } else if ("long".equals(type)) {
+                Long.parseLong(value.trim());
+            } else if (Duration.class.getName().equals(type)) {
+                Duration.parse(value.trim());
+            }
+            return true;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Dependencies of indexed beans resolved by type are resolved again among the given beans, as the bean of the type
+     * may differ between profiles, or may have been replaced since the index was written.
+     */
+    private Bean resolveIndexedDependencies(Bean bean, Map<String, List<String>> candidatesByType) {
+        List<Dependency> dependencies = bean.getDependencies().stream()
+                .map(dependency -> {
+                    List<String> candidateBeans = dependency.getInjectedType() == null ? Collections.emptyList()
+                            : candidatesByType.getOrDefault(dependency.getInjectedType(), Collections.emptyList());
+                    return candidateBeans.size() == 1 ? dependency.toBuilder().beanName(candidateBeans.get(0)).build() : dependency;
+                })
+                .collect(Collectors.toList());
+        return bean.toBuilder().dependencies(dependencies).build();
+    }
+
+    /**
+     * Collections of beans are injected into parameters of type {@link List}, {@link Set} and {@link Map} with
+     * {@link String} keys, unless the parameter is qualified by {@link Named}.
+     *
+     * @return kind of the collection, or null if the given type is not a collection of beans
+     */
+    private Dependency.Kind getMultibindingKind(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declaredType = (DeclaredType) type;
+        String typeName = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+        if (List.class.getName().equals(typeName) && typeArguments.size() == 1) {
+            return Dependency.Kind.LIST;
+        } else if (Set.class.getName().equals(typeName) && typeArguments.size() == 1) {
+            return Dependency.Kind.SET;
+        } else if (Map.class.getName().equals(typeName) && typeArguments.size() == 2
+                && String.class.getName().equals(getTypeName(typeArguments.get(0)))) {
+            return Dependency.Kind.MAP;
+        }
+        return null;
+    }
+
+    /**
+     * @return type argument of the given generic type (such as {@link Provider} or {@link Pool}), or null if the given
+     * type is not of that generic type
+     */
+    private TypeMirror getTypeArgument(TypeMirror type, String genericTypeName) {
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declaredType = (DeclaredType) type;
+            TypeElement element = (TypeElement) declaredType.asElement();
+            if (genericTypeName.equals(element.getQualifiedName().toString())
+                    && declaredType.getTypeArguments().size() == 1) {
+                return declaredType.getTypeArguments().get(0);
+            }
         }
+        return null;
     }
 
     private ExecutableElement findConstructorToUseForInjection(TypeElement value) {
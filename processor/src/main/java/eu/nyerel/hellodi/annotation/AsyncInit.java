@@ -0,0 +1,23 @@
+package eu.nyerel.hellodi.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method starting asynchronous initialization of a bean, such as warming up a cache or opening connections.
+ * The method has to be public, not static, without parameters, and has to return a
+ * {@link java.util.concurrent.CompletionStage}. The bean is injected into other beans only after the stage completes.
+ * <p>
+ * {@code Injector.injectAsync()} starts initialization of each bean as soon as its own dependencies are initialized.
+ * Other ways of creating the beans wait for the initialization of each bean to complete.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface AsyncInit {
+}
@@ -0,0 +1,35 @@
+package eu.nyerel.hellodi.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a constructor parameter of a bean taking a configuration value instead of a bean. The parameter has to be of
+ * type {@code int}, {@code long}, {@link String} or {@link java.time.Duration} (in ISO-8601 format, e.g.
+ * {@code PT30S}).
+ * <p>
+ * The value is read at compile time from the properties file given in option {@code hellodi.config}, and written
+ * into the generated injector as a literal, so nothing is parsed when the beans are created. A runtime value is
+ * read from the system property of the same key when the bean is created, the value from the file being its default.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.PARAMETER)
+public @interface ConfigValue {
+
+    /**
+     * @return key of the value in the properties file, and of the system property for runtime values
+     */
+    String value();
+
+    /**
+     * @return true if the value can be overridden by a system property when the bean is created
+     */
+    boolean runtime() default false;
+
+}
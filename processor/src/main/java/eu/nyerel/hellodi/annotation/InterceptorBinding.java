@@ -0,0 +1,31 @@
+package eu.nyerel.hellodi.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interceptor binding, an annotation binding methods of beans to the {@link eu.nyerel.hellodi.intercept.Interceptor}
+ * annotated with it. A bean annotated with the binding has all its public and protected methods intercepted, otherwise
+ * only the methods annotated with it.
+ * <p>
+ * {@code javax.interceptor.InterceptorBinding} and {@code jakarta.interceptor.InterceptorBinding} are recognized as
+ * well. Members of binding annotations are ignored.
+ *
+ * <pre>{@code
+ * @InterceptorBinding
+ * @Retention(RetentionPolicy.CLASS)
+ * @Target({ElementType.TYPE, ElementType.METHOD})
+ * public @interface Timed {
+ * }
+ * }</pre>
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.ANNOTATION_TYPE)
+public @interface InterceptorBinding {
+}
@@ -0,0 +1,29 @@
+package eu.nyerel.hellodi.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean whose instances are not shared, but borrowed from a bounded pool, for beans which are costly to create,
+ * stateful and not thread-safe (parsers, codecs, digests). The bean can be injected only as a
+ * {@link eu.nyerel.hellodi.pool.Pool} of the bean.
+ * <p>
+ * Instances are created on demand, and kept by the pool when returned, up to its size. Each instance is initialized
+ * like any bean when created, and destroyed when the injector is closed (or when it is dropped by the pool).
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Pooled {
+
+    /**
+     * @return maximum number of instances kept by the pool, 0 for twice the number of available processors
+     */
+    int size() default 0;
+
+}
@@ -0,0 +1,27 @@
+package eu.nyerel.hellodi.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bean which is wired only into the injectors of the given profiles, those listed in option
+ * {@code hellodi.profiles}. Each profile gets an injector of its own, so alternative implementations of a type (an
+ * in-memory store and a persistent one, a stub and the real client) are selected at compile time. Beans without this
+ * annotation are wired into the injectors of all the profiles.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Profile {
+
+    /**
+     * @return names of the profiles the bean belongs to
+     */
+    String[] value();
+
+}
@@ -0,0 +1,23 @@
+package eu.nyerel.hellodi.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method exercising the hot paths of a bean, so they are compiled by the JIT before the application serves
+ * its first requests. The method has to be public, not static and without parameters. Its result is ignored.
+ * <p>
+ * {@code Injector.warmUp(Duration)} calls the warm-up methods of all the beans, those of the dependencies of a bean
+ * before its own, and those of independent beans concurrently. Warm-up methods not finished within the budget are
+ * interrupted, and those not started are skipped.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface Warmup {
+}
@@ -0,0 +1,162 @@
+package eu.nyerel.hellodi.core;
+
+import eu.nyerel.hellodi.model.Bean;
+import eu.nyerel.hellodi.model.Dependency;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Line based format of analyzed beans, so they don't need to be analyzed again by subsequent compilations. Each line
+ * holds one bean as tab separated {@code name, type, package, dependencies, supertypes, postConstructMethod,
+ * asyncInitMethod, destroyMethod, warmupMethod, scope, poolSize, implementationType, interceptorBindings, profiles},
+ * where dependencies are comma separated {@code KIND:beanName} pairs ({@code KIND:beanName@injectedType} for beans
+ * resolved by type, {@code KIND:elementType} for collections of beans, {@code KIND:configKey@type} for configuration
+ * values), supertypes and interceptor bindings are comma separated qualified names, profiles are comma separated
+ * names, and missing lifecycle methods, scope, pool size and implementation type are empty.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+public class BeanIndex {
+
+    private static final String HEADER = "# hello-di bean index v10";
+
+    private BeanIndex() {}
+
+    public static void write(Collection<Bean> beans, Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Bean bean : beans) {
+            writer.write(bean.getName());
+            writer.write('\t');
+            writer.write(bean.getType());
+            writer.write('\t');
+            writer.write(bean.getPackageName());
+            writer.write('\t');
+            for (int i = 0; i < bean.getDependencies().size(); i++) {
+                Dependency dependency = bean.getDependencies().get(i);
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(dependency.getKind().name());
+                writer.write(':');
+                writer.write(dependency.isMultibinding() ? dependency.getElementType()
+                        : dependency.isConfigValue() ? dependency.getConfigKey() : dependency.getBeanName());
+                if (dependency.getInjectedType() != null) {
+                    writer.write('@');
+                    writer.write(dependency.getInjectedType());
+                }
+            }
+            writer.write('\t');
+            writer.write(String.join(",", bean.getSupertypes()));
+            writer.write('\t');
+            writer.write(nullToEmpty(bean.getPostConstructMethod()));
+            writer.write('\t');
+            writer.write(nullToEmpty(bean.getAsyncInitMethod()));
+            writer.write('\t');
+            writer.write(nullToEmpty(bean.getDestroyMethod()));
+            writer.write('\t');
+            writer.write(nullToEmpty(bean.getWarmupMethod()));
+            writer.write('\t');
+            writer.write(nullToEmpty(bean.getScope()));
+            writer.write('\t');
+            writer.write(bean.isPooled() ? bean.getPoolSize().toString() : "");
+            writer.write('\t');
+            writer.write(nullToEmpty(bean.getImplementationType()));
+            writer.write('\t');
+            writer.write(String.join(",", bean.getInterceptorBindings()));
+            writer.write('\t');
+            writer.write(String.join(",", bean.getProfiles()));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * @return beans read from the index, or an empty list if it was written by an incompatible version
+     */
+    public static List<Bean> read(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        if (!HEADER.equals(in.readLine())) {
+            return Collections.emptyList();
+        }
+        List<Bean> beans = new ArrayList<>();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] columns = line.split("\t", -1);
+            if (columns.length != 14) {
+                throw new IOException("Malformed bean index line: " + line);
+            }
+            List<Dependency> dependencies = new ArrayList<>();
+            for (String dependency : split(columns[3])) {
+                int separator = dependency.indexOf(':');
+                try {
+                    Dependency.Kind kind = Dependency.Kind.valueOf(dependency.substring(0, separator));
+                    String name = dependency.substring(separator + 1);
+                    Dependency.DependencyBuilder builder = Dependency.builder().kind(kind);
+                    if (kind == Dependency.Kind.INSTANCE || kind == Dependency.Kind.PROVIDER || kind == Dependency.Kind.POOL) {
+                        int typeSeparator = name.lastIndexOf('@');
+                        builder.beanName(typeSeparator < 0 ? name : name.substring(0, typeSeparator))
+                                .injectedType(typeSeparator < 0 ? null : name.substring(typeSeparator + 1));
+                    } else if (kind == Dependency.Kind.VALUE || kind == Dependency.Kind.RUNTIME_VALUE) {
+                        int typeSeparator = name.lastIndexOf('@');
+                        builder.configKey(name.substring(0, typeSeparator))
+                                .injectedType(name.substring(typeSeparator + 1));
+                    } else {
+                        builder.elementType(name);
+                    }
+                    dependencies.add(builder.build());
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    throw new IOException("Malformed dependency '" + dependency + "' in bean index line: " + line);
+                }
+            }
+            beans.add(Bean.builder()
+                    .name(columns[0])
+                    .type(columns[1])
+                    .packageName(columns[2])
+                    .dependencies(dependencies)
+                    .supertypes(split(columns[4]))
+                    .postConstructMethod(emptyToNull(columns[5]))
+                    .asyncInitMethod(emptyToNull(columns[6]))
+                    .destroyMethod(emptyToNull(columns[7]))
+                    .warmupMethod(emptyToNull(columns[8]))
+                    .scope(emptyToNull(columns[9]))
+                    .poolSize(columns[10].isEmpty() ? null : parsePoolSize(columns[10], line))
+                    .implementationType(emptyToNull(columns[11]))
+                    .interceptorBindings(split(columns[12]))
+                    .profiles(split(columns[13]))
+                    .build());
+        }
+        return beans;
+    }
+
+    private static Integer parsePoolSize(String column, String line) throws IOException {
+        try {
+            return Integer.valueOf(column);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed pool size '" + column + "' in bean index line: " + line);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static List<String> split(String column) {
+        return column.isEmpty() ? Collections.emptyList() : Arrays.asList(column.split(","));
+    }
+
+}
@@ -0,0 +1,103 @@
+package eu.nyerel.hellodi.core;
+
+import eu.nyerel.hellodi.model.Bean;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Splits beans (in creation order) into chunks of bounded size. Beans of the first chunk are held by the injector class
+ * itself, each of the other chunks gets its own nested class. This way neither a single method, nor the constant pool
+ * of a single class grows with the total number of beans.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class ChunkLayout {
+
+    /**
+     * Beans of each chunk, grouped by dependency levels. A level may be split between two subsequent chunks.
+     */
+    private final List<List<List<Bean>>> chunks = new ArrayList<>();
+    private final List<List<Bean>> chunkBeans = new ArrayList<>();
+    private final Map<String, Integer> chunkIndexByBean = new HashMap<>();
+    private final Map<String, Integer> levelIndexByBean = new HashMap<>();
+
+    ChunkLayout(List<List<Bean>> levels, int chunkSize) {
+        List<List<Bean>> chunk = new ArrayList<>();
+        int chunkBeanCount = 0;
+        for (int levelIndex = 0; levelIndex < levels.size(); levelIndex++) {
+            List<Bean> level = levels.get(levelIndex);
+            List<Bean> segment = new ArrayList<>();
+            for (Bean bean : level) {
+                if (chunkBeanCount == chunkSize) {
+                    if (!segment.isEmpty()) {
+                        chunk.add(segment);
+                        segment = new ArrayList<>();
+                    }
+                    chunks.add(chunk);
+                    chunk = new ArrayList<>();
+                    chunkBeanCount = 0;
+                }
+                segment.add(bean);
+                chunkIndexByBean.put(bean.getName(), chunks.size());
+                levelIndexByBean.put(bean.getName(), levelIndex);
+                chunkBeanCount++;
+            }
+            if (!segment.isEmpty()) {
+                chunk.add(segment);
+            }
+        }
+        chunks.add(chunk);
+        chunks.forEach(c -> chunkBeans.add(c.stream().flatMap(List::stream).collect(Collectors.toList())));
+    }
+
+    int getChunkCount() {
+        return chunks.size();
+    }
+
+    List<List<Bean>> getLevels(int chunk) {
+        return chunks.get(chunk);
+    }
+
+    List<Bean> getBeans(int chunk) {
+        return chunkBeans.get(chunk);
+    }
+
+    int getChunkIndex(String beanName) {
+        return chunkIndexByBean.get(beanName);
+    }
+
+    /**
+     * @return index of the dependency level of the bean, among all the levels
+     */
+    int getLevelIndex(String beanName) {
+        return levelIndexByBean.get(beanName);
+    }
+
+    /**
+     * @return prefix of an expression accessing a member of chunk {@code to} from code of chunk {@code from}
+     */
+    String qualifier(int from, int to) {
+        if (from == to) {
+            return "";
+        } else if (from == 0) {
+            return fieldName(to) + ".";
+        } else if (to == 0) {
+            return "injector.";
+        } else {
+            return "injector." + fieldName(to) + ".";
+        }
+    }
+
+    static String className(int chunk) {
+        return "Chunk" + chunk;
+    }
+
+    static String fieldName(int chunk) {
+        return "chunk" + chunk;
+    }
+
+}
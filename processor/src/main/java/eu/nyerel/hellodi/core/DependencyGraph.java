@@ -0,0 +1,227 @@
+package eu.nyerel.hellodi.core;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dependency graph of beans, with nodes indexed by bean name. Edges point from a bean to the beans it depends on.
+ * Sorting is linear in the number of beans and dependencies.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+public class DependencyGraph {
+
+    private final String[] names;
+    private final int[][] dependencies;
+    private final int[][] dependents;
+    private final boolean[] unresolved;
+    private final Map<String, List<String>> unknownDependencies = new LinkedHashMap<>();
+
+    /**
+     * @param dependenciesByName dependencies of each bean, iteration order of the map determines order of beans
+     *                           within a single level of the result
+     */
+    public DependencyGraph(Map<String, ? extends Collection<String>> dependenciesByName) {
+        int size = dependenciesByName.size();
+        Map<String, Integer> indexByName = new HashMap<>(size * 2);
+        names = dependenciesByName.keySet().toArray(new String[0]);
+        for (int i = 0; i < size; i++) {
+            indexByName.put(names[i], i);
+        }
+        dependencies = new int[size][];
+        unresolved = new boolean[size];
+        int[] dependentCounts = new int[size];
+        for (int i = 0; i < size; i++) {
+            Collection<String> beanDependencies = dependenciesByName.get(names[i]);
+            int[] edges = new int[beanDependencies.size()];
+            int edgeCount = 0;
+            for (String dependency : beanDependencies) {
+                Integer index = indexByName.get(dependency);
+                if (index == null) {
+                    unknownDependencies.computeIfAbsent(names[i], n -> new ArrayList<>()).add(dependency);
+                    unresolved[i] = true;
+                } else {
+                    edges[edgeCount++] = index;
+                    dependentCounts[index]++;
+                }
+            }
+            dependencies[i] = edgeCount == edges.length ? edges : Arrays.copyOf(edges, edgeCount);
+        }
+        dependents = new int[size][];
+        for (int i = 0; i < size; i++) {
+            dependents[i] = new int[dependentCounts[i]];
+        }
+        int[] filled = new int[size];
+        for (int i = 0; i < size; i++) {
+            for (int dependency : dependencies[i]) {
+                dependents[dependency][filled[dependency]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Sorts the beans into levels (Kahn's algorithm), where each bean depends only on beans from previous levels.
+     * Beans which can not be sorted, because they are part of a cycle or depend on an unknown bean (directly or
+     * transitively), are left out of the levels.
+     */
+    public Result sort() {
+        int size = names.length;
+        int[] inDegree = new int[size];
+        for (int i = 0; i < size; i++) {
+            inDegree[i] = unresolved[i] ? dependencies[i].length + 1 : dependencies[i].length;
+        }
+
+        List<List<String>> levels = new ArrayList<>();
+        int[] current = new int[size];
+        int currentCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (inDegree[i] == 0) {
+                current[currentCount++] = i;
+            }
+        }
+        int[] next = new int[size];
+        int sortedCount = 0;
+        while (currentCount > 0) {
+            List<String> level = new ArrayList<>(currentCount);
+            int nextCount = 0;
+            for (int c = 0; c < currentCount; c++) {
+                int bean = current[c];
+                level.add(names[bean]);
+                for (int dependent : dependents[bean]) {
+                    if (--inDegree[dependent] == 0) {
+                        next[nextCount++] = dependent;
+                    }
+                }
+            }
+            levels.add(level);
+            sortedCount += currentCount;
+            int[] swap = current;
+            current = next;
+            next = swap;
+            currentCount = nextCount;
+        }
+
+        List<List<String>> cycles = sortedCount == size ? Collections.emptyList() : findCycles();
+        return new Result(levels, cycles, unknownDependencies);
+    }
+
+    /**
+     * Finds strongly connected components (iterative Tarjan's algorithm) and returns one cycle path for each
+     * of them, e.g. {@code [a, b, c, a]}.
+     */
+    private List<List<String>> findCycles() {
+        int size = names.length;
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        int[] component = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        int[] stack = new int[size];
+        int stackSize = 0;
+        int[] callStack = new int[size];
+        int[] edgePositions = new int[size];
+        int nextIndex = 0;
+        int componentCount = 0;
+        List<List<String>> cycles = new ArrayList<>();
+
+        for (int start = 0; start < size; start++) {
+            if (index[start] != -1) {
+                continue;
+            }
+            int depth = 0;
+            callStack[0] = start;
+            edgePositions[0] = 0;
+            index[start] = lowLink[start] = nextIndex++;
+            stack[stackSize++] = start;
+            onStack[start] = true;
+            while (depth >= 0) {
+                int bean = callStack[depth];
+                int[] edges = dependencies[bean];
+                if (edgePositions[depth] < edges.length) {
+                    int dependency = edges[edgePositions[depth]++];
+                    if (index[dependency] == -1) {
+                        index[dependency] = lowLink[dependency] = nextIndex++;
+                        stack[stackSize++] = dependency;
+                        onStack[dependency] = true;
+                        depth++;
+                        callStack[depth] = dependency;
+                        edgePositions[depth] = 0;
+                    } else if (onStack[dependency]) {
+                        lowLink[bean] = Math.min(lowLink[bean], index[dependency]);
+                    }
+                } else {
+                    if (lowLink[bean] == index[bean]) {
+                        int member;
+                        int memberCount = 0;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            component[member] = componentCount;
+                            memberCount++;
+                        } while (member != bean);
+                        if (memberCount > 1 || contains(dependencies[bean], bean)) {
+                            cycles.add(tracePath(bean, component));
+                        }
+                        componentCount++;
+                    }
+                    depth--;
+                    if (depth >= 0) {
+                        int caller = callStack[depth];
+                        lowLink[caller] = Math.min(lowLink[caller], lowLink[bean]);
+                    }
+                }
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Walks the edges inside of a strongly connected component until some bean is visited for the second time.
+     */
+    private List<String> tracePath(int start, int[] component) {
+        Map<Integer, Integer> positions = new HashMap<>();
+        List<String> path = new ArrayList<>();
+        int bean = start;
+        while (!positions.containsKey(bean)) {
+            positions.put(bean, path.size());
+            path.add(names[bean]);
+            for (int dependency : dependencies[bean]) {
+                if (component[dependency] == component[start]) {
+                    bean = dependency;
+                    break;
+                }
+            }
+        }
+        List<String> cycle = new ArrayList<>(path.subList(positions.get(bean), path.size()));
+        cycle.add(names[bean]);
+        return cycle;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Value
+    public static class Result {
+
+        List<List<String>> levels;
+        List<List<String>> cycles;
+        Map<String, List<String>> unknownDependencies;
+
+    }
+
+}
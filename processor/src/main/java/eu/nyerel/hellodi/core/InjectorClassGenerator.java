@@ -3,61 +3,1714 @@ package eu.nyerel.hellodi.core;
 import eu.nyerel.hellodi.model.Bean;
 import eu.nyerel.hellodi.model.BeanWiring;
 import eu.nyerel.hellodi.model.Config;
+import eu.nyerel.hellodi.model.Dependency;
+import eu.nyerel.hellodi.model.Scope;
+import eu.nyerel.hellodi.util.StringUtil;
 import lombok.AllArgsConstructor;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @AllArgsConstructor
 public class InjectorClassGenerator {
 
+    /**
+     * Static accessors of all the beans are generated into the injector class itself, for more beans they might not
+     * fit into its constant pool.
+     */
+    public static final int MAX_TYPED_ACCESSORS = 5000;
+    /**
+     * Lookup by name is generated for at most this number of beans, see {@link PerfectHash}.
+     */
+    public static final int MAX_NAMED_LOOKUP = PerfectHash.MAX_KEYS;
+
     private final Config config;
 
-    public String generate(BeanWiring beanWiring, String packageName) {
+    /**
+     * Writes source of the injector to the writer as it is generated, the writer is flushed but not closed.
+     */
+    public void generate(BeanWiring beanWiring, String packageName, Writer writer) throws IOException {
         List<Bean> beans = beanWiring.getBeans();
         List<Bean> rootBeans = beanWiring.getRootBeans();
-        StringBuilder sb = new StringBuilder();
+        String injectorName = config.getInjectorName();
+        String instance = config.isSingleton() ? "Holder.INSTANCE" : "new " + injectorName + "()";
+        ChunkLayout layout = new ChunkLayout(beanWiring.getLevels(), config.getChunkSize());
+        boolean concurrent = isConcurrent(beanWiring.getLevels());
+        Set<String> providedBeanNames = beanWiring.getAllBeans().stream()
+                .flatMap(b -> b.getDependencies().stream())
+                .filter(d -> d.getKind() == Dependency.Kind.PROVIDER)
+                .map(Dependency::getBeanName)
+                .collect(Collectors.toSet());
+        Map<String, Bean> lookupTypes = resolveLookupTypes(beans);
+        List<Bean> destroyedBeans = beans.stream().filter(b -> b.getDestroyMethod() != null).collect(Collectors.toList());
+        List<Bean> warmedBeans = beans.stream().filter(b -> b.getWarmupMethod() != null).collect(Collectors.toList());
+        // creation index of each bean, if asynchronous creation is generated
+        Map<String, Integer> asyncIndexes = new LinkedHashMap<>();
+        if (rootBeans.size() == 1 && beans.stream().anyMatch(b -> b.getAsyncInitMethod() != null)) {
+            for (int i = 0; i < beans.size(); i++) {
+                asyncIndexes.put(beans.get(i).getName(), i);
+            }
+        }
+        PerfectHash nameHash = PerfectHash.create(beans.stream().map(Bean::getName).collect(Collectors.toList()));
+        Map<String, Integer> nameSlots = new LinkedHashMap<>();
+        if (nameHash != null) {
+            for (int i = 0; i < beans.size(); i++) {
+                nameSlots.put(beans.get(i).getName(), nameHash.getSlot(i));
+            }
+        }
+        // creation index of each bean, if a builder overriding beans is generated
+        Map<String, Integer> overrideIndexes = new LinkedHashMap<>();
+        if (config.isOverrides()) {
+            for (int chunk = 0; chunk < layout.getChunkCount(); chunk++) {
+                layout.getBeans(chunk).forEach(b -> overrideIndexes.put(b.getName(), overrideIndexes.size()));
+            }
+        }
+        Map<String, Bean> overrideTypes = resolveOverrideTypes(beans);
+        SourceWriter out = new SourceWriter(writer);
         //@formatter:off
-        sb      .append("package ").append(packageName).append(";\n\n")
-                .append("import java.util.HashMap;\n")
-                .append("import java.util.Map;\n\n")
-                .append("public class ").append(config.getInjectorName()).append(" {\n\n");
-        String beanCreationFragment = createBeanCreationFragment(beans);
-        if (rootBeans.size() == 1) {
-            Bean rootBean = rootBeans.get(0);String rootBeanType = rootBean.getType();
-            sb  .append("    public static " + rootBeanType + " inject() {\n")
-                .append("        // bean creation\n")
-                .append(beanCreationFragment)
+        out      .append("package ").append(packageName).append(";\n\n")
+                .append("public class ").append(injectorName).append(" implements AutoCloseable {\n\n");
+        writeFields(out, layout, 0, concurrent);
+        if (config.isOverrides()) {
+            out  .append("    // beans created by the injector itself, null if it created all of them\n")
+                .append("    private final boolean[] created;\n");
+        }
+        // not final, providers created before a chunk exists refer to it
+        for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+            out  .append("    private ").append(ChunkLayout.className(chunk)).append(" ").append(ChunkLayout.fieldName(chunk)).append(";\n");
+        }
+        out      .append("    private boolean closed;\n")
                 .append("\n")
-                .append("        return " + rootBean.getName() + ";\n")
+                .append("    private ").append(injectorName).append("() {\n");
+        if (config.isOverrides()) {
+            out  .append("        created = null;\n");
+        }
+        writeConstructorBody(out, layout, beanWiring.getLevels(), concurrent);
+        out      .append("    }\n\n");
+        if (config.isOverrides()) {
+            writeOverridingConstructor(out, layout, overrideIndexes);
+        }
+        writeGetters(out, layout, 0, providedBeanNames);
+        if (concurrent) {
+            writeConcurrentCreationHelper(out, beanWiring.getLevels());
+        }
+        if (!destroyedBeans.isEmpty()) {
+            writeShutdownClass(out);
+        }
+        if (!warmedBeans.isEmpty()) {
+            writeWarmUpClass(out);
+        }
+        if (config.isJfr()) {
+            writeEvents(out, packageName);
+        }
+        if (usesCollectionClasses(beanWiring.getAllBeans())) {
+            writeCollectionClasses(out);
+        }
+        if (beans.stream().anyMatch(Bean::isPooled)) {
+            writePoolClasses(out);
+        }
+        if (beanWiring.getAllBeans().stream().flatMap(b -> b.getDependencies().stream())
+                .anyMatch(d -> d.getKind() == Dependency.Kind.RUNTIME_VALUE)) {
+            writeConfigValueHelper(out);
+        }
+        if (config.isSingleton()) {
+            out  .append("    private static final class Holder {\n")
+                .append("        static final ").append(injectorName).append(" INSTANCE = new ").append(injectorName).append("();\n")
                 .append("    }\n\n");
         }
-        sb      .append("    public static <T> T inject(Class<T> appClass) {\n")
-                .append("        // bean creation\n")
-                .append(beanCreationFragment)
-                .append("\n")
-                .append("        // beans mapped by type\n")
-                .append("        Map<Class<?>, Object> beanTypeMap = new HashMap<>();\n");
-        beans.forEach(b -> {
-            sb  .append("        ").append(String.format("beanTypeMap.put(%s.class, %s);\n", b.getType(), b.getName()));
+        if (config.isOverrides()) {
+            writeOverrideHelpers(out, layout, overrideIndexes, overrideTypes);
+        }
+        if (rootBeans.size() == 1) {
+            Bean rootBean = rootBeans.get(0);
+            out  .append("    public static " + rootBean.getType() + " inject() {\n")
+                .append("        return " + instance + "." + reference(layout, 0, rootBean.getName()) + ";\n")
+                .append("    }\n\n");
+            if (!warmedBeans.isEmpty()) {
+                out.append("    public static " + rootBean.getType() + " inject(java.time.Duration warmUpBudget) {\n")
+                  .append("        " + injectorName + " injector = " + instance + ";\n")
+                  .append("        injector.warmUp(warmUpBudget);\n")
+                  .append("        return injector." + reference(layout, 0, rootBean.getName()) + ";\n")
+                  .append("    }\n\n");
+            }
+        }
+        out      .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public static <T> T inject(Class<T> appClass) {\n")
+                .append("        return (T) " + instance + ".lookup(appClass);\n")
+                .append("    }\n\n");
+        if (nameHash != null) {
+            out  .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public static <T> T inject(String beanName) {\n")
+                .append("        return (T) " + instance + ".lookup(beanName);\n")
+                .append("    }\n\n");
+        }
+        if (!asyncIndexes.isEmpty()) {
+            writeInjectAsync(out, layout, beans, rootBeans.get(0));
+            writeAsyncCreation(out, layout, 0, beans, asyncIndexes);
+        }
+        writeInstanceAccess(out, layout, rootBeans, nameHash != null);
+        if (config.isOverrides()) {
+            out  .append("    public static Builder builder() {\n")
+                .append("        return new Builder();\n")
+                .append("    }\n\n");
+        }
+        if (!warmedBeans.isEmpty()) {
+            writeWarmUp(out, layout, warmedBeans);
+        }
+        for (Scope scope : beanWiring.getScopes()) {
+            out  .append("    public ").append(scope.getSimpleName()).append(" create").append(scope.getSimpleName()).append("() {\n")
+                .append("        return new ").append(scope.getSimpleName()).append("(this);\n")
+                .append("    }\n\n");
+        }
+        writeClose(out, layout, destroyedBeans);
+        if (layout.getBeans(0).stream().anyMatch(b -> b.getDestroyMethod() != null)) {
+            writeDestroy(out, layout, 0, overrideIndexes);
+        }
+        if (config.isSingleton() && beans.size() <= MAX_TYPED_ACCESSORS) {
+            beans.forEach(b -> {
+                out.append("    public static ").append(publicType(b)).append(" ").append(b.getName()).append("() {\n")
+                  .append("        return Holder.INSTANCE.").append(reference(layout, 0, b.getName())).append(";\n")
+                  .append("    }\n\n");
+            });
+        }
+        writeLookup(out, layout, 0, lookupTypes);
+        if (nameHash != null) {
+            writeNamedLookup(out, layout);
+            nameHash.writeSource(out, "name");
+            writeSlotLookup(out, layout, 0, nameSlots);
+        }
+        for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+            out.indent();
+            writeChunkClass(out, layout, chunk, concurrent, providedBeanNames, lookupTypes, nameSlots, beans, asyncIndexes,
+                    overrideIndexes, overrideTypes);
+            out.unindent();
+        }
+        for (Scope scope : beanWiring.getScopes()) {
+            out.indent();
+            writeScopeClass(out, layout, scope, providedBeanNames, nameHash != null);
+            out.unindent();
+        }
+        if (config.isOverrides()) {
+            out.indent();
+            writeBuilderClass(out, overrideIndexes.size());
+            out.unindent();
+        }
+        out      .append("}\n");
+        //@formatter:on
+        out.flush();
+    }
+
+    /**
+     * @return binary names of the injector class and of the nested classes generated into it
+     */
+    public List<String> getInjectorClassNames(BeanWiring beanWiring, String packageName) {
+        List<Bean> beans = beanWiring.getBeans();
+        String injectorClass = (packageName.isEmpty() ? "" : packageName + ".") + config.getInjectorName();
+        List<String> nestedClasses = new ArrayList<>();
+        ChunkLayout layout = new ChunkLayout(beanWiring.getLevels(), config.getChunkSize());
+        for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+            nestedClasses.add(ChunkLayout.className(chunk));
+        }
+        if (beans.stream().anyMatch(b -> b.getDestroyMethod() != null)) {
+            nestedClasses.addAll(List.of("Destruction", "Shutdown"));
+        }
+        if (beans.stream().anyMatch(b -> b.getWarmupMethod() != null)) {
+            nestedClasses.addAll(List.of("WarmUpMethod", "WarmUp"));
+        }
+        if (config.isJfr()) {
+            nestedClasses.addAll(List.of("BeanCreationEvent", "WiringEvent"));
+        }
+        if (usesCollectionClasses(beanWiring.getAllBeans())) {
+            nestedClasses.addAll(List.of("ArraySet", "ArrayMap"));
+        }
+        if (beans.stream().anyMatch(Bean::isPooled)) {
+            nestedClasses.addAll(List.of("PoolDestruction", "ObjectPool", "PooledInstance", "PoolHandle"));
+        }
+        if (config.isSingleton()) {
+            nestedClasses.add("Holder");
+        }
+        if (isConcurrent(beanWiring.getLevels())) {
+            nestedClasses.add("Wiring");
+        }
+        beanWiring.getScopes().forEach(scope -> nestedClasses.add(scope.getSimpleName()));
+        if (config.isOverrides()) {
+            nestedClasses.add("Builder");
+            if (!config.isSingleton()) {
+                nestedClasses.add("Base");
+            }
+        }
+        List<String> classNames = new ArrayList<>();
+        classNames.add(injectorClass);
+        nestedClasses.forEach(nested -> classNames.add(injectorClass + "$" + nested));
+        return classNames;
+    }
+
+    /**
+     * Training entry point loads (without initializing) the classes listed in the class list of the injector, so a
+     * JVM running it can dump them into a CDS archive, without running the application.
+     */
+    public String generateTraining(String packageName, String classListName) {
+        String className = config.getInjectorName() + "Training";
+        //@formatter:off
+        return (packageName.isEmpty() ? "" : "package " + packageName + ";\n\n") +
+               "public final class " + className + " {\n\n" +
+               "    private " + className + "() {\n" +
+               "    }\n\n" +
+               "    public static void main(String... args) throws java.io.IOException, ClassNotFoundException {\n" +
+               "        ClassLoader loader = " + className + ".class.getClassLoader();\n" +
+               "        int count = 0;\n" +
+               "        try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(\n" +
+               "                " + className + ".class.getResourceAsStream(\"" + classListName + "\"), java.nio.charset.StandardCharsets.UTF_8))) {\n" +
+               "            String line;\n" +
+               "            while ((line = reader.readLine()) != null) {\n" +
+               "                if (!line.isEmpty() && !line.startsWith(\"#\")) {\n" +
+               "                    Class.forName(line.replace('/', '.'), false, loader);\n" +
+               "                    count++;\n" +
+               "                }\n" +
+               "            }\n" +
+               "        }\n" +
+               "        System.out.println(\"Loaded \" + count + \" classes of " + config.getInjectorName() + "\");\n" +
+               "    }\n\n" +
+               "}\n";
+        //@formatter:on
+    }
+
+    private static boolean usesCollectionClasses(List<Bean> beans) {
+        return beans.stream()
+                .flatMap(b -> b.getDependencies().stream())
+                .anyMatch(d -> d.getKind() == Dependency.Kind.SET || d.getKind() == Dependency.Kind.MAP);
+    }
+
+    private boolean isConcurrent(List<List<Bean>> levels) {
+        return config.isParallel() && !config.isLazy() && levels.stream().anyMatch(level -> level.size() > 1);
+    }
+
+    private void writeFields(SourceWriter out, ChunkLayout layout, int chunk, boolean concurrent) {
+        String fieldModifiers = config.isLazy() ? "private volatile" : concurrent ? "private" : "private final";
+        layout.getBeans(chunk).forEach(b -> {
+            out.append("    ").append(fieldModifiers).append(" ").append(fieldType(b)).append(" ").append(b.getName()).append(";\n");
+        });
+    }
+
+    private void writeConstructorBody(SourceWriter out, ChunkLayout layout, List<List<Bean>> levels, boolean concurrent) {
+        if (config.isJfr()) {
+            out.append("        WiringEvent wiring = new WiringEvent();\n")
+              .append("        wiring.begin();\n");
+        }
+        if (config.isLazy()) {
+            for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+                out.append("        ").append(ChunkLayout.fieldName(chunk)).append(" = new ").append(ChunkLayout.className(chunk)).append("(this);\n");
+            }
+        } else {
+            writeBeanCreation(out, layout, 0, concurrent);
+            for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+                out.append("        ").append(ChunkLayout.fieldName(chunk)).append(" = new ").append(ChunkLayout.className(chunk)).append("(this);\n");
+            }
+        }
+        if (config.isJfr()) {
+            int maxLevelSize = levels.stream().mapToInt(List::size).max().orElse(0);
+            int beanCount = levels.stream().mapToInt(List::size).sum();
+            out.append("        wiring.end();\n")
+              .append("        if (wiring.shouldCommit()) {\n")
+              .append("            wiring.beans = ").append(beanCount).append(";\n")
+              .append("            wiring.levels = ").append(levels.size()).append(";\n")
+              .append("            wiring.widestLevel = ").append(maxLevelSize).append(";\n")
+              .append("            wiring.commit();\n")
+              .append("        }\n");
+        }
+    }
+
+    private void writeChunkClass(SourceWriter out, ChunkLayout layout, int chunk, boolean concurrent, Set<String> providedBeanNames,
+                                    Map<String, Bean> lookupTypes, Map<String, Integer> nameSlots, List<Bean> beans,
+                                    Map<String, Integer> asyncIndexes, Map<String, Integer> overrideIndexes,
+                                    Map<String, Bean> overrideTypes) {
+        String className = ChunkLayout.className(chunk);
+        String injectorName = config.getInjectorName();
+        //@formatter:off
+        out      .append("private static final class ").append(className).append(" {\n\n")
+                .append("    private final ").append(injectorName).append(" injector;\n");
+        writeFields(out, layout, chunk, concurrent);
+        out      .append("\n");
+        out      .append("    ").append(className).append("(").append(injectorName).append(" injector) {\n");
+        out      .append("        this.injector = injector;\n");
+        if (!config.isLazy()) {
+            writeBeanCreation(out, layout, chunk, concurrent);
+        }
+        out      .append("    }\n\n");
+        if (config.isOverrides()) {
+            out  .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    ").append(className).append("(").append(injectorName).append(" injector, ").append(className)
+                .append(" base, Object[] overrides) {\n")
+                .append("        this.injector = injector;\n");
+            writeOverridingCreation(out, layout, chunk, overrideIndexes);
+            out  .append("    }\n\n");
+            writeReplaceDependents(out, layout, chunk, overrideIndexes);
+            writeOverrideIndex(out, layout, chunk, overrideTypes, overrideIndexes);
+        }
+        writeGetters(out, layout, chunk, providedBeanNames);
+        writeLookup(out, layout, chunk, lookupTypes);
+        if (layout.getBeans(chunk).stream().anyMatch(b -> b.getDestroyMethod() != null)) {
+            writeDestroy(out, layout, chunk, overrideIndexes);
+        }
+        if (!asyncIndexes.isEmpty()) {
+            writeAsyncCreation(out, layout, chunk, beans, asyncIndexes);
+        }
+        if (!nameSlots.isEmpty()) {
+            writeSlotLookup(out, layout, chunk, nameSlots);
+        }
+        out      .append("}\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Lookup by type is resolved to a chain of identity checks on class literals. Besides the bean types, a supertype
+     * is matched if exactly one bean is assignable to it. Pooled beans are not looked up by type, the injector holds
+     * their pools, which are not of the bean type.
+     */
+    private Map<String, Bean> resolveLookupTypes(List<Bean> beans) {
+        Map<String, Bean> beansByType = new LinkedHashMap<>();
+        beans.stream().filter(b -> !b.isPooled()).forEach(b -> beansByType.put(b.getType(), b));
+        Map<String, List<Bean>> beansBySupertype = new LinkedHashMap<>();
+        beans.stream().filter(b -> !b.isPooled()).forEach(b -> b.getSupertypes().stream()
+                .filter(t -> !beansByType.containsKey(t))
+                .forEach(t -> beansBySupertype.computeIfAbsent(t, k -> new ArrayList<>()).add(b)));
+        beansBySupertype.forEach((type, candidates) -> {
+            if (candidates.size() == 1) {
+                beansByType.put(type, candidates.get(0));
+            }
+        });
+        return beansByType;
+    }
+
+    /**
+     * Each chunk checks the types resolved to its own beans. The injector itself delegates to the other chunks if
+     * the type is not resolved to a bean of the first chunk.
+     */
+    private void writeLookup(SourceWriter out, ChunkLayout layout, int chunk, Map<String, Bean> lookupTypes) {
+        out.append("    private Object lookup(Class<?> type) {\n");
+        lookupTypes.forEach((type, bean) -> {
+            if (layout.getChunkIndex(bean.getName()) == chunk) {
+                out.append("        if (type == ").append(type).append(".class) {\n")
+                  .append("            return ").append(lookupReference(layout, chunk, bean.getName())).append(";\n")
+                  .append("        }\n");
+            }
+        });
+        if (chunk == 0 && layout.getChunkCount() > 1) {
+            out.append("        Object bean;\n");
+            for (int other = 1; other < layout.getChunkCount(); other++) {
+                out.append("        bean = ").append(ChunkLayout.fieldName(other)).append(".lookup(type);\n")
+                  .append("        if (bean != null) {\n")
+                  .append("            return bean;\n")
+                  .append("        }\n");
+            }
+        }
+        out.append("        return null;\n")
+          .append("    }\n\n");
+    }
+
+    /**
+     * Lookup by name computes slot of the name by a perfect hash. Each chunk resolves a range of slots (as many as it
+     * has beans) by a switch, which checks the name only once, against the only bean which can have it.
+     */
+    private void writeNamedLookup(SourceWriter out, ChunkLayout layout) {
+        out.append("    private Object lookup(String name) {\n")
+          .append("        int slot = nameSlot(java.util.Objects.requireNonNull(name, \"beanName\"));\n");
+        if (layout.getChunkCount() == 1) {
+            out.append("        return lookup(slot, name);\n");
+        } else {
+            out.append("        switch (slot / ").append(config.getChunkSize()).append(") {\n")
+              .append("            case 0:\n")
+              .append("                return lookup(slot, name);\n");
+            for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+                out.append("            case ").append(chunk).append(":\n")
+                  .append("                return ").append(ChunkLayout.fieldName(chunk)).append(".lookup(slot, name);\n");
+            }
+            out.append("            default:\n")
+              .append("                return null;\n")
+              .append("        }\n");
+        }
+        out.append("    }\n\n");
+    }
+
+    private void writeSlotLookup(SourceWriter out, ChunkLayout layout, int chunk, Map<String, Integer> nameSlots) {
+        int firstSlot = chunk * config.getChunkSize();
+        int lastSlot = firstSlot + config.getChunkSize() - 1;
+        out.append("    private Object lookup(int slot, String name) {\n")
+          .append("        switch (slot) {\n");
+        // names with equal hash codes share a slot, each of them is checked
+        Map<Integer, List<String>> namesBySlot = nameSlots.entrySet().stream()
+                .filter(e -> e.getValue() >= firstSlot && e.getValue() <= lastSlot)
+                .collect(Collectors.groupingBy(Map.Entry::getValue, TreeMap::new,
+                        Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        namesBySlot.forEach((slot, names) -> {
+            out.append("            case ").append(slot).append(":\n");
+            for (String name : names.subList(0, names.size() - 1)) {
+                out.append("                if (\"").append(name).append("\".equals(name)) {\n")
+                  .append("                    return ").append(lookupReference(layout, chunk, name)).append(";\n")
+                  .append("                }\n");
+            }
+            String name = names.get(names.size() - 1);
+            out.append("                return \"").append(name).append("\".equals(name) ? ")
+              .append(lookupReference(layout, chunk, name)).append(" : null;\n");
+        });
+        out.append("            default:\n")
+          .append("                return null;\n")
+          .append("        }\n")
+          .append("    }\n\n");
+    }
+
+    private void writeBeanCreation(SourceWriter out, ChunkLayout layout, int chunk, boolean concurrent) {
+        layout.getLevels(chunk).forEach(level -> {
+            if (!concurrent || level.size() == 1) {
+                level.forEach(bean -> {
+                    writeCreationStatements(out, bean, createInstantiation(layout, chunk, bean), bean.getName(), "        ");
+                });
+            } else {
+                out.append("        createConcurrently(");
+                for (int i = 0; i < level.size(); i++) {
+                    Bean bean = level.get(i);
+                    out.append(i == 0 ? "\n" : ",\n");
+                    if (bean.isPooled()) {
+                        out.append("                () -> ").append(bean.getName()).append(" = ");
+                        writePoolCreation(out, bean, createInstantiation(layout, chunk, bean), "                ");
+                    } else if (bean.getPostConstructMethod() == null && bean.getAsyncInitMethod() == null) {
+                        out.append("                () -> ").append(bean.getName()).append(" = ").append(createInstantiation(layout, chunk, bean));
+                    } else {
+                        out.append("                () -> {\n");
+                        writeCreationStatements(out, bean, createInstantiation(layout, chunk, bean), bean.getName(), "                    ");
+                        out.append("                }");
+                    }
+                }
+                out.append(");\n");
+            }
+        });
+    }
+
+    /**
+     * Beans of each level are created concurrently, on an executor shared by all the injectors, with enough threads to
+     * create the widest level at once, but at most one per processor (unless configured otherwise). Its threads are
+     * started on demand and end when idle, so they cost nothing once the application started.
+     * <p>
+     * The calling thread runs the tasks which no thread of the executor has taken yet itself, so it never waits for an
+     * executor busy with other injectors. Completion of each level is awaited via {@link java.util.concurrent.Future},
+     * which guarantees the created beans are visible to the following levels. When a bean fails, the tasks not started
+     * yet are skipped, and the running ones are awaited, so no bean is created into an abandoned injector. Failures of
+     * the other beans of the level are added to the first one as suppressed.
+     */
+    private void writeConcurrentCreationHelper(SourceWriter out, List<List<Bean>> levels) {
+        int maxLevelSize = levels.stream().mapToInt(List::size).max().orElse(0);
+        // the calling thread creates one bean of each level itself
+        String threads = config.getParallelThreads() != null
+                ? config.getParallelThreads().toString()
+                : "Math.min(" + (maxLevelSize - 1) + ", Runtime.getRuntime().availableProcessors())";
+        //@formatter:off
+        out.append("    private static final class Wiring {\n\n" +
+                   "        static final java.util.concurrent.ExecutorService EXECUTOR = createExecutor(" + threads + ");\n\n" +
+                   "        private static java.util.concurrent.ExecutorService createExecutor(int threads) {\n" +
+                   "            java.util.concurrent.ThreadPoolExecutor executor = new java.util.concurrent.ThreadPoolExecutor(threads, threads,\n" +
+                   "                    1, java.util.concurrent.TimeUnit.SECONDS, new java.util.concurrent.LinkedBlockingQueue<>(), runnable -> {\n" +
+                   "                Thread thread = new Thread(runnable, \"" + config.getInjectorName() + "-wiring\");\n" +
+                   "                thread.setDaemon(true);\n" +
+                   "                return thread;\n" +
+                   "            });\n" +
+                   "            executor.allowCoreThreadTimeOut(true);\n" +
+                   "            return executor;\n" +
+                   "        }\n\n" +
+                   "    }\n\n" +
+                   "    private static void createConcurrently(Runnable... tasks) {\n" +
+                   "        java.util.concurrent.atomic.AtomicBoolean failed = new java.util.concurrent.atomic.AtomicBoolean();\n" +
+                   "        java.util.List<java.util.concurrent.FutureTask<Void>> futures = new java.util.ArrayList<>(tasks.length);\n" +
+                   "        for (Runnable task : tasks) {\n" +
+                   "            // once a bean fails, the tasks not started yet are skipped\n" +
+                   "            futures.add(new java.util.concurrent.FutureTask<>(() -> {\n" +
+                   "                if (!failed.get()) {\n" +
+                   "                    try {\n" +
+                   "                        task.run();\n" +
+                   "                    } catch (RuntimeException | Error e) {\n" +
+                   "                        failed.set(true);\n" +
+                   "                        throw e;\n" +
+                   "                    }\n" +
+                   "                }\n" +
+                   "            }, null));\n" +
+                   "        }\n" +
+                   "        for (int i = 1; i < futures.size(); i++) {\n" +
+                   "            Wiring.EXECUTOR.execute(futures.get(i));\n" +
+                   "        }\n" +
+                   "        for (java.util.concurrent.FutureTask<Void> future : futures) {\n" +
+                   "            // does nothing if a thread of the executor took the task already\n" +
+                   "            future.run();\n" +
+                   "        }\n" +
+                   "        Throwable failure = null;\n" +
+                   "        boolean interrupted = false;\n" +
+                   "        for (java.util.concurrent.FutureTask<Void> future : futures) {\n" +
+                   "            while (true) {\n" +
+                   "                try {\n" +
+                   "                    future.get();\n" +
+                   "                    break;\n" +
+                   "                } catch (InterruptedException e) {\n" +
+                   "                    // the beans being created are awaited anyway, the interrupt is restored afterwards\n" +
+                   "                    interrupted = true;\n" +
+                   "                } catch (java.util.concurrent.ExecutionException e) {\n" +
+                   "                    if (failure == null) {\n" +
+                   "                        failure = e.getCause();\n" +
+                   "                    } else {\n" +
+                   "                        failure.addSuppressed(e.getCause());\n" +
+                   "                    }\n" +
+                   "                    break;\n" +
+                   "                }\n" +
+                   "            }\n" +
+                   "        }\n" +
+                   "        if (interrupted) {\n" +
+                   "            Thread.currentThread().interrupt();\n" +
+                   "        }\n" +
+                   "        if (failure instanceof Error) {\n" +
+                   "            throw (Error) failure;\n" +
+                   "        }\n" +
+                   "        if (failure != null) {\n" +
+                   "            throw (RuntimeException) failure;\n" +
+                   "        }\n" +
+                   "    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Asynchronous creation does not use an injector instance, futures of the beans (in creation order) are kept in an
+     * array shared by all the chunks.
+     */
+    private void writeInjectAsync(SourceWriter out, ChunkLayout layout, List<Bean> beans, Bean rootBean) {
+        String future = "java.util.concurrent.CompletableFuture";
+        //@formatter:off
+        out      .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public static ").append(future).append("<").append(rootBean.getType()).append("> injectAsync() {\n")
+                .append("        ").append(future).append("<?>[] futures = new ").append(future).append("<?>[").append(beans.size()).append("];\n")
+                .append("        createAsync(futures);\n");
+        for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+            out  .append("        ").append(ChunkLayout.className(chunk)).append(".createAsync(futures);\n");
+        }
+        out      .append("        return (").append(future).append("<").append(rootBean.getType()).append(">) futures[").append(beans.indexOf(rootBean)).append("];\n")
+                .append("    }\n\n");
+        if (beans.stream().flatMap(b -> b.getDependencies().stream()).anyMatch(d -> d.getKind() == Dependency.Kind.PROVIDER)) {
+            out  .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    private static <T> T provideAsync(").append(future).append("<?>[] futures, int index, String name) {\n")
+                .append("        if (futures[index] == null) {\n")
+                .append("            throw new IllegalStateException(\"Bean '\" + name + \"' can not be provided before it is created\");\n")
+                .append("        }\n")
+                .append("        return (T) futures[index].join();\n")
+                .append("    }\n\n");
+        }
+        //@formatter:on
+    }
+
+    /**
+     * Each bean is created as soon as the beans it depends on are created and initialized, by the thread completing the
+     * last of them (or the calling thread, if they are already complete). Its asynchronous initialization is composed
+     * after its creation, so beans depending on it wait for the initialization too.
+     */
+    private void writeAsyncCreation(SourceWriter out, ChunkLayout layout, int chunk, List<Bean> beans, Map<String, Integer> asyncIndexes) {
+        Function<String, String> reference = name -> "(" + fieldType(beans.get(asyncIndexes.get(name))) + ") futures[" + asyncIndexes.get(name) + "].join()";
+        if (layout.getBeans(chunk).stream().flatMap(b -> b.getDependencies().stream()).anyMatch(d -> d.getKind() == Dependency.Kind.POOL)) {
+            out.append("    @SuppressWarnings(\"unchecked\")\n");
+        }
+        out.append("    private static void createAsync(java.util.concurrent.CompletableFuture<?>[] futures) {\n");
+        layout.getBeans(chunk).forEach(bean -> {
+            List<String> dependencyFutures = bean.getDependencies().stream()
+                    .flatMap(d -> d.getCreationDependencies().stream())
+                    .distinct()
+                    .map(name -> "futures[" + asyncIndexes.get(name) + "]")
+                    .collect(Collectors.toList());
+            String arguments = bean.getDependencies().stream()
+                    .map(d -> d.isMultibinding() ? createCollection(d, reference)
+                            : d.isConfigValue() ? configValue(d)
+                            : d.getKind() == Dependency.Kind.PROVIDER ? "() -> provideAsync(futures, " + asyncIndexes.get(d.getBeanName()) + ", \"" + d.getBeanName() + "\")"
+                            : reference.apply(d.getBeanName()))
+                    .collect(Collectors.joining(", "));
+            String instantiation = instrument(bean, layout.getLevelIndex(bean.getName()), "new " + bean.getInstantiatedType() + "(" + arguments + ")");
+            out.append("        futures[").append(asyncIndexes.get(bean.getName())).append("] = ")
+              .append(dependencyFutures.size() == 1 ? dependencyFutures.get(0)
+                      : "java.util.concurrent.CompletableFuture.allOf(" + String.join(", ", dependencyFutures) + ")");
+            if (bean.isPooled()) {
+                out.append("\n                .thenApply(v -> ");
+                writePoolCreation(out, bean, instantiation, "                ");
+                out.append(")");
+            } else if (bean.getPostConstructMethod() == null) {
+                out.append("\n                .thenApply(v -> ").append(instantiation).append(")");
+            } else {
+                out.append("\n                .thenApply(v -> {\n")
+                  .append("                    ").append(bean.getType()).append(" bean = ").append(instantiation).append(";\n")
+                  .append("                    bean.").append(bean.getPostConstructMethod()).append("();\n")
+                  .append("                    return bean;\n")
+                  .append("                })");
+            }
+            if (bean.getAsyncInitMethod() != null && !bean.isPooled()) {
+                out.append("\n                .thenCompose(bean -> bean.").append(bean.getAsyncInitMethod()).append("().thenApply(v -> bean))");
+            }
+            out.append(";\n");
         });
-        sb      .append("\n")
-                .append("        return (T) beanTypeMap.get(appClass);\n")
+        out.append("    }\n\n");
+    }
+
+    /**
+     * Instance access to the beans, for injectors created explicitly, to be closed when no longer needed.
+     */
+    private void writeInstanceAccess(SourceWriter out, ChunkLayout layout, List<Bean> rootBeans, boolean namedLookup) {
+        String injectorName = config.getInjectorName();
+        //@formatter:off
+        out      .append("    public static ").append(injectorName).append(" create() {\n")
+                .append("        return new ").append(injectorName).append("();\n")
+                .append("    }\n\n");
+        if (config.isSingleton()) {
+            out  .append("    public static ").append(injectorName).append(" instance() {\n")
+                .append("        return Holder.INSTANCE;\n")
+                .append("    }\n\n");
+        }
+        if (rootBeans.size() == 1) {
+            Bean rootBean = rootBeans.get(0);
+            out  .append("    public ").append(rootBean.getType()).append(" get() {\n")
+                .append("        return ").append(lookupReference(layout, 0, rootBean.getName())).append(";\n")
+                .append("    }\n\n");
+        }
+        out      .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public <T> T get(Class<T> type) {\n")
+                .append("        return (T) lookup(type);\n")
+                .append("    }\n\n");
+        if (namedLookup) {
+            out  .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public <T> T get(String beanName) {\n")
+                .append("        return (T) lookup(beanName);\n")
+                .append("    }\n\n");
+        }
+        //@formatter:on
+    }
+
+    /**
+     * Beans are destroyed in reverse creation order, level by level (the last chunk first), so each bean is destroyed
+     * only after all the beans depending on it. Beans of one level are destroyed concurrently, on a thread each.
+     */
+    private void writeClose(SourceWriter out, ChunkLayout layout, List<Bean> destroyedBeans) {
+        //@formatter:off
+        out      .append("    @Override\n")
+                .append("    public void close() {\n")
+                .append("        close(java.time.Duration.ofMillis(").append(config.getShutdownTimeout()).append("));\n")
                 .append("    }\n\n")
-                .append("}\n");
+                .append("    public synchronized void close(java.time.Duration timeout) {\n")
+                .append("        if (closed) {\n")
+                .append("            return;\n")
+                .append("        }\n")
+                .append("        closed = true;\n");
+        if (!destroyedBeans.isEmpty()) {
+            long threads = destroyedBeans.stream()
+                    .collect(Collectors.groupingBy(b -> layout.getLevelIndex(b.getName()), Collectors.counting()))
+                    .values().stream().mapToLong(Long::longValue).max().orElse(1);
+            out  .append("        Shutdown shutdown = new Shutdown(").append(threads).append(", timeout);\n");
+            for (int chunk = layout.getChunkCount() - 1; chunk >= 0; chunk--) {
+                if (layout.getBeans(chunk).stream().anyMatch(b -> b.getDestroyMethod() != null)) {
+                    out.append("        ").append(layout.qualifier(0, chunk)).append("destroy(shutdown);\n");
+                }
+            }
+            out  .append("        shutdown.finish();\n");
+        }
+        out      .append("    }\n\n");
         //@formatter:on
-        return sb.toString();
     }
 
-    private String createBeanCreationFragment(List<Bean> beans) {
-        StringBuilder sb = new StringBuilder();
-        beans.forEach(bean -> {
-            sb.append("        ").append(String.format("%s %s = new %s(%s);\n",
-                    bean.getType(),
-                    bean.getName(),
-                    bean.getType(),
-                    String.join(", ", bean.getDependencies())));
+    /**
+     * In lazy mode, beans which were never created are skipped. Pooled beans destroy the instances kept by their pools.
+     * An injector built with overrides skips the beans it shares with the base injector, and the overriding beans.
+     */
+    private void writeDestroy(SourceWriter out, ChunkLayout layout, int chunk, Map<String, Integer> overrideIndexes) {
+        List<List<Bean>> levels = layout.getLevels(chunk);
+        out.append("    private void destroy(Shutdown shutdown) {\n");
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            levels.get(i).stream().filter(b -> b.getDestroyMethod() != null).forEach(bean -> {
+                String field = "this." + bean.getName();
+                String destroy = "shutdown.destroy(" + layout.getLevelIndex(bean.getName()) + ", \"" + bean.getName() + "\", () -> " +
+                        field + "." + (bean.isPooled() ? "destroy" : bean.getDestroyMethod()) + "());\n";
+                List<String> conditions = new ArrayList<>();
+                if (config.isOverrides()) {
+                    String created = (chunk == 0 ? "" : "injector.") + "created";
+                    conditions.add(created + " == null || " + created + "[" + overrideIndexes.get(bean.getName()) + "]");
+                }
+                if (config.isLazy()) {
+                    conditions.add(field + " != null");
+                }
+                if (!conditions.isEmpty()) {
+                    String condition = conditions.size() == 1
+                            ? conditions.get(0)
+                            : conditions.stream().map(c -> c.contains("||") ? "(" + c + ")" : c).collect(Collectors.joining(" && "));
+                    out.append("        if (").append(condition).append(") {\n")
+                      .append("            ").append(destroy)
+                      .append("        }\n");
+                } else {
+                    out.append("        ").append(destroy);
+                }
+            });
+        }
+        out.append("    }\n\n");
+    }
+
+    /**
+     * Beans can be overridden only by their own type, as dependents hold them in fields of that type. Types of more
+     * beans, and pooled beans (held as their pools) can not be overridden.
+     */
+    private Map<String, Bean> resolveOverrideTypes(List<Bean> beans) {
+        Map<String, Bean> beansByType = new LinkedHashMap<>();
+        if (config.isOverrides()) {
+            Map<String, Long> beanCounts = beans.stream().collect(Collectors.groupingBy(Bean::getType, Collectors.counting()));
+            beans.stream()
+                    .filter(b -> !b.isPooled() && beanCounts.get(b.getType()) == 1)
+                    .forEach(b -> beansByType.put(b.getType(), b));
+        }
+        return beansByType;
+    }
+
+    /**
+     * Constructor of an injector built with overrides. The overriding beans and the beans depending on them (even
+     * through providers) are replaced, the others are taken from the base injector, which is already built. In lazy
+     * mode the replaced beans are left to be created on first use, the shared beans are created by the base injector.
+     */
+    private void writeOverridingConstructor(SourceWriter out, ChunkLayout layout, Map<String, Integer> overrideIndexes) {
+        String injectorName = config.getInjectorName();
+        out.append("    @SuppressWarnings(\"unchecked\")\n")
+          .append("    private ").append(injectorName).append("(").append(injectorName).append(" base, Object[] overrides) {\n")
+          .append("        created = createdBeans(overrides);\n");
+        writeOverridingCreation(out, layout, 0, overrideIndexes);
+        for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+            String field = ChunkLayout.fieldName(chunk);
+            out.append("        ").append(field).append(" = new ").append(ChunkLayout.className(chunk))
+              .append("(this, base.").append(field).append(", overrides);\n");
+        }
+        out.append("    }\n\n");
+    }
+
+    private void writeOverridingCreation(SourceWriter out, ChunkLayout layout, int chunk, Map<String, Integer> overrideIndexes) {
+        String created = chunk == 0 ? "created" : "injector.created";
+        //@formatter:off
+        layout.getBeans(chunk).forEach(bean -> {
+            String name = bean.getName();
+            int index = overrideIndexes.get(name);
+            out.append("        ");
+            if (!bean.isPooled()) {
+                out.append("if (overrides[").append(index).append("] != null) {\n")
+                  .append("            ").append(name).append(" = (").append(bean.getType()).append(") overrides[").append(index).append("];\n")
+                  .append("        } else ");
+            }
+            if (config.isLazy()) {
+                out.append("if (!").append(created).append("[").append(index).append("]) {\n")
+                  .append("            ").append(name).append(" = base.").append(getterName(name)).append("();\n")
+                  .append("        }\n");
+            } else {
+                out.append("if (").append(created).append("[").append(index).append("]) {\n");
+                writeCreationStatements(out, bean, createInstantiation(layout, chunk, bean), name, "            ");
+                out.append("        } else {\n")
+                  .append("            ").append(name).append(" = base.").append(name).append(";\n")
+                  .append("        }\n");
+            }
+        });
+        //@formatter:on
+    }
+
+    /**
+     * Holder of the base injector (unless the singleton is the base), the beans it resolves the overrides to, and
+     * marking of the beans to replace. Each chunk marks its own beans depending on replaced ones, the marking is
+     * repeated until no bean is added, as a provider may refer to a bean created later.
+     */
+    private void writeOverrideHelpers(SourceWriter out, ChunkLayout layout, Map<String, Integer> overrideIndexes,
+                                      Map<String, Bean> overrideTypes) {
+        String injectorName = config.getInjectorName();
+        //@formatter:off
+        if (!config.isSingleton()) {
+            out  .append("    private static final class Base {\n")
+                .append("        static final ").append(injectorName).append(" INSTANCE = new ").append(injectorName).append("();\n")
+                .append("    }\n\n");
+        }
+        out      .append("    private static boolean[] createdBeans(Object[] overrides) {\n")
+                .append("        boolean[] replaced = new boolean[overrides.length];\n")
+                .append("        for (int i = 0; i < overrides.length; i++) {\n")
+                .append("            replaced[i] = overrides[i] != null;\n")
+                .append("        }\n")
+                .append("        boolean changed;\n")
+                .append("        do {\n")
+                .append("            changed = replaceDependents(replaced);\n");
+        for (int chunk = 1; chunk < layout.getChunkCount(); chunk++) {
+            out  .append("            changed |= ").append(ChunkLayout.className(chunk)).append(".replaceDependents(replaced);\n");
+        }
+        out      .append("        } while (changed);\n")
+                .append("        for (int i = 0; i < overrides.length; i++) {\n")
+                .append("            replaced[i] &= overrides[i] == null;\n")
+                .append("        }\n")
+                .append("        return replaced;\n")
+                .append("    }\n\n");
+        //@formatter:on
+        writeReplaceDependents(out, layout, 0, overrideIndexes);
+        writeOverrideIndex(out, layout, 0, overrideTypes, overrideIndexes);
+    }
+
+    private void writeReplaceDependents(SourceWriter out, ChunkLayout layout, int chunk, Map<String, Integer> overrideIndexes) {
+        out.append("    private static boolean replaceDependents(boolean[] replaced) {\n")
+          .append("        boolean changed = false;\n");
+        layout.getBeans(chunk).forEach(bean -> {
+            List<String> dependencies = bean.getDependencies().stream()
+                    // a provider is bound to the injector which created the bean, so it would provide the shared beans
+                    .flatMap(d -> d.getKind() == Dependency.Kind.PROVIDER
+                            ? Stream.of(d.getBeanName())
+                            : d.getCreationDependencies().stream())
+                    .map(overrideIndexes::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .sorted()
+                    .map(index -> "replaced[" + index + "]")
+                    .collect(Collectors.toList());
+            if (!dependencies.isEmpty()) {
+                int index = overrideIndexes.get(bean.getName());
+                String replaced = dependencies.size() == 1 ? dependencies.get(0) : "(" + String.join(" || ", dependencies) + ")";
+                out.append("        if (!replaced[").append(index).append("] && ").append(replaced).append(") {\n")
+                  .append("            replaced[").append(index).append("] = true;\n")
+                  .append("            changed = true;\n")
+                  .append("        }\n");
+            }
+        });
+        out.append("        return changed;\n")
+          .append("    }\n\n");
+    }
+
+    /**
+     * Like the lookup by type, each chunk resolves the types of its own beans, the injector delegates to the others.
+     */
+    private void writeOverrideIndex(SourceWriter out, ChunkLayout layout, int chunk, Map<String, Bean> overrideTypes,
+                                    Map<String, Integer> overrideIndexes) {
+        out.append("    private static int overrideIndex(Class<?> type) {\n");
+        overrideTypes.forEach((type, bean) -> {
+            if (layout.getChunkIndex(bean.getName()) == chunk) {
+                out.append("        if (type == ").append(type).append(".class) {\n")
+                  .append("            return ").append(overrideIndexes.get(bean.getName())).append(";\n")
+                  .append("        }\n");
+            }
+        });
+        if (chunk == 0 && layout.getChunkCount() > 1) {
+            out.append("        int index;\n");
+            for (int other = 1; other < layout.getChunkCount(); other++) {
+                out.append("        index = ").append(ChunkLayout.className(other)).append(".overrideIndex(type);\n")
+                  .append("        if (index >= 0) {\n")
+                  .append("            return index;\n")
+                  .append("        }\n");
+            }
+        }
+        out.append("        return -1;\n")
+          .append("    }\n\n");
+    }
+
+    /**
+     * Builder of injectors with overridden beans, for tests. Each built injector is a new one, sharing the beans which
+     * do not depend on the overridden ones with the base injector. The base is built on first use and never closed.
+     */
+    private void writeBuilderClass(SourceWriter out, int beanCount) {
+        String injectorName = config.getInjectorName();
+        String base = config.isSingleton() ? "Holder.INSTANCE" : "Base.INSTANCE";
+        //@formatter:off
+        out      .append("public static final class Builder {\n\n")
+                .append("    private final Object[] overrides = new Object[").append(beanCount).append("];\n\n")
+                .append("    private Builder() {\n")
+                .append("    }\n\n")
+                .append("    public <T> Builder override(Class<T> type, T bean) {\n")
+                .append("        int index = overrideIndex(type);\n")
+                .append("        if (index < 0) {\n")
+                .append("            throw new IllegalArgumentException(\"No bean of type \" + type.getName() + \" can be overridden\");\n")
+                .append("        }\n")
+                .append("        overrides[index] = type.cast(java.util.Objects.requireNonNull(bean, \"bean\"));\n")
+                .append("        return this;\n")
+                .append("    }\n\n")
+                .append("    public ").append(injectorName).append(" build() {\n")
+                .append("        return new ").append(injectorName).append("(").append(base).append(", overrides.clone());\n")
+                .append("    }\n\n")
+                .append("}\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Child injector holding the beans of a scope. Its beans are created right away, and refer to the beans of the
+     * injector through its fields, so creating a child costs just creating the scoped beans. The child is passed around
+     * explicitly (there is no thread bound context), and does not lock, so it can be used by virtual threads freely.
+     * Beans are looked up in the child first, then in the injector.
+     */
+    private void writeScopeClass(SourceWriter out, ChunkLayout layout, Scope scope, Set<String> providedBeanNames, boolean namedLookup) {
+        String className = scope.getSimpleName();
+        String injectorName = config.getInjectorName();
+        Map<String, Integer> levelIndexes = new HashMap<>();
+        for (int i = 0; i < scope.getLevels().size(); i++) {
+            int levelIndex = i;
+            scope.getLevels().get(i).forEach(bean -> levelIndexes.put(bean.getName(), levelIndex));
+        }
+        Function<String, String> reference = name -> levelIndexes.containsKey(name) ? "this." + name : "parent." + reference(layout, 0, name);
+        List<Bean> destroyedBeans = scope.getBeans().stream().filter(b -> b.getDestroyMethod() != null).collect(Collectors.toList());
+        //@formatter:off
+        out      .append("public static final class ").append(className).append(" implements AutoCloseable {\n\n")
+                .append("    private final ").append(injectorName).append(" parent;\n");
+        scope.getBeans().forEach(bean -> {
+            out.append("    private final ").append(bean.getType()).append(" ").append(bean.getName()).append(";\n");
+        });
+        if (!destroyedBeans.isEmpty()) {
+            out  .append("    private final java.util.concurrent.atomic.AtomicBoolean closed = new java.util.concurrent.atomic.AtomicBoolean();\n");
+        }
+        out      .append("\n")
+                .append("    private ").append(className).append("(").append(injectorName).append(" parent) {\n")
+                .append("        this.parent = parent;\n");
+        scope.getBeans().forEach(bean -> {
+            String arguments = bean.getDependencies().stream()
+                    .map(d -> {
+                        String name = d.getBeanName();
+                        if (d.isMultibinding()) {
+                            return createCollection(d, reference);
+                        } else if (d.isConfigValue()) {
+                            return configValue(d);
+                        } else if (d.getKind() != Dependency.Kind.PROVIDER) {
+                            return reference.apply(name);
+                        } else if (levelIndexes.containsKey(name)) {
+                            return "this::" + getterName(name);
+                        } else {
+                            return "() -> parent." + layout.qualifier(0, layout.getChunkIndex(name)) + getterName(name) + "()";
+                        }
+                    })
+                    .collect(Collectors.joining(", "));
+            String instantiation = instrument(bean, levelIndexes.get(bean.getName()), "new " + bean.getInstantiatedType() + "(" + arguments + ")");
+            writeCreationStatements(out, bean, instantiation, bean.getName(), "        ");
+        });
+        out      .append("    }\n\n");
+        scope.getBeans().forEach(bean -> {
+            out.append("    public ").append(bean.getType()).append(" ").append(bean.getName()).append("() {\n")
+              .append("        return ").append(bean.getName()).append(";\n")
+              .append("    }\n\n");
         });
-        return sb.toString();
+        out      .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public <T> T get(Class<T> type) {\n");
+        resolveLookupTypes(scope.getBeans()).forEach((type, bean) -> {
+            out.append("        if (type == ").append(type).append(".class) {\n")
+              .append("            return (T) this.").append(bean.getName()).append(";\n")
+              .append("        }\n");
+        });
+        out      .append("        return (T) parent.lookup(type);\n")
+                .append("    }\n\n")
+                .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public <T> T get(String beanName) {\n")
+                .append("        switch (java.util.Objects.requireNonNull(beanName, \"beanName\")) {\n");
+        scope.getBeans().forEach(bean -> {
+            out.append("            case \"").append(bean.getName()).append("\":\n")
+              .append("                return (T) this.").append(bean.getName()).append(";\n");
+        });
+        out      .append("            default:\n")
+                .append("                return ").append(namedLookup ? "(T) parent.lookup(beanName)" : "null").append(";\n")
+                .append("        }\n")
+                .append("    }\n\n");
+        scope.getBeans().stream().filter(b -> providedBeanNames.contains(b.getName())).forEach(bean -> {
+            writeProviderGetter(out, bean);
+        });
+        writeScopeClose(out, destroyedBeans);
+        out      .append("}\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Scoped beans are destroyed in reverse creation order by the calling thread, a child is expected to hold few of
+     * them. As on shutdown of the injector, a failure does not stop the others.
+     */
+    private void writeScopeClose(SourceWriter out, List<Bean> destroyedBeans) {
+        //@formatter:off
+        out      .append("    @Override\n")
+                .append("    public void close() {\n");
+        if (!destroyedBeans.isEmpty()) {
+            out  .append("        if (!closed.compareAndSet(false, true)) {\n")
+                .append("            return;\n")
+                .append("        }\n")
+                .append("        java.util.List<Throwable> failures = new java.util.ArrayList<>();\n");
+            for (int i = destroyedBeans.size() - 1; i >= 0; i--) {
+                Bean bean = destroyedBeans.get(i);
+                out.append("        try {\n")
+                  .append("            this.").append(bean.getName()).append(".").append(bean.getDestroyMethod()).append("();\n")
+                  .append("        } catch (Exception e) {\n")
+                  .append("            failures.add(new IllegalStateException(\"Failed to destroy bean '").append(bean.getName()).append("'\", e));\n")
+                  .append("        }\n");
+            }
+            out  .append("        if (!failures.isEmpty()) {\n")
+                .append("            IllegalStateException exception = new IllegalStateException(\"Failed to destroy beans\");\n")
+                .append("            failures.forEach(exception::addSuppressed);\n")
+                .append("            throw exception;\n")
+                .append("        }\n");
+        }
+        out      .append("    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Destruction of each bean runs on a thread of an executor, so the calling thread can give up waiting when the
+     * deadline passes, even if a bean hangs. None of the beans of the following levels is destroyed then, not only
+     * those the abandoned beans depend on: past the deadline, waiting for any of them would take no time, so each
+     * would only be abandoned in turn, while its destruction kept running. A failure does not stop the shutdown, all
+     * the failures are reported at the end.
+     */
+    private void writeShutdownClass(SourceWriter out) {
+        //@formatter:off
+        out.append("    @FunctionalInterface\n" +
+                   "    private interface Destruction {\n" +
+                   "        void destroy() throws Exception;\n" +
+                   "    }\n\n" +
+                   "    private static final class Shutdown {\n\n" +
+                   "        private final java.util.concurrent.ExecutorService executor;\n" +
+                   "        private final java.time.Duration timeout;\n" +
+                   "        private final long deadline;\n" +
+                   "        private final java.util.List<String> levelBeans = new java.util.ArrayList<>();\n" +
+                   "        private final java.util.List<java.util.concurrent.Future<?>> levelFutures = new java.util.ArrayList<>();\n" +
+                   "        private final java.util.List<String> abandonedBeans = new java.util.ArrayList<>();\n" +
+                   "        private final java.util.List<Throwable> failures = new java.util.ArrayList<>();\n" +
+                   "        private int level = -1;\n\n" +
+                   "        Shutdown(int threads, java.time.Duration timeout) {\n" +
+                   "            this.executor = java.util.concurrent.Executors.newFixedThreadPool(threads, runnable -> {\n" +
+                   "                Thread thread = new Thread(runnable, \"" + config.getInjectorName() + "-shutdown\");\n" +
+                   "                thread.setDaemon(true);\n" +
+                   "                return thread;\n" +
+                   "            });\n" +
+                   "            this.timeout = timeout;\n" +
+                   "            this.deadline = System.nanoTime() + timeout.toNanos();\n" +
+                   "        }\n\n" +
+                   "        void destroy(int level, String bean, Destruction destruction) {\n" +
+                   "            if (level != this.level) {\n" +
+                   "                awaitLevel();\n" +
+                   "                this.level = level;\n" +
+                   "            }\n" +
+                   "            if (!abandonedBeans.isEmpty()) {\n" +
+                   "                abandonedBeans.add(bean);\n" +
+                   "                return;\n" +
+                   "            }\n" +
+                   "            levelBeans.add(bean);\n" +
+                   "            levelFutures.add(executor.submit(() -> {\n" +
+                   "                destruction.destroy();\n" +
+                   "                return null;\n" +
+                   "            }));\n" +
+                   "        }\n\n" +
+                   "        private void awaitLevel() {\n" +
+                   "            for (int i = 0; i < levelFutures.size(); i++) {\n" +
+                   "                try {\n" +
+                   "                    levelFutures.get(i).get(deadline - System.nanoTime(), java.util.concurrent.TimeUnit.NANOSECONDS);\n" +
+                   "                } catch (java.util.concurrent.ExecutionException e) {\n" +
+                   "                    failures.add(new IllegalStateException(\"Failed to destroy bean '\" + levelBeans.get(i) + \"'\", e.getCause()));\n" +
+                   "                } catch (java.util.concurrent.TimeoutException e) {\n" +
+                   "                    abandonedBeans.add(levelBeans.get(i));\n" +
+                   "                } catch (InterruptedException e) {\n" +
+                   "                    Thread.currentThread().interrupt();\n" +
+                   "                    abandonedBeans.add(levelBeans.get(i));\n" +
+                   "                }\n" +
+                   "            }\n" +
+                   "            levelBeans.clear();\n" +
+                   "            levelFutures.clear();\n" +
+                   "        }\n\n" +
+                   "        void finish() {\n" +
+                   "            awaitLevel();\n" +
+                   "            executor.shutdownNow();\n" +
+                   "            if (!abandonedBeans.isEmpty() || !failures.isEmpty()) {\n" +
+                   "                IllegalStateException exception = new IllegalStateException(abandonedBeans.isEmpty()\n" +
+                   "                        ? \"Failed to destroy beans\"\n" +
+                   "                        : \"Beans \" + abandonedBeans + \" were not destroyed within \" + timeout);\n" +
+                   "                failures.forEach(exception::addSuppressed);\n" +
+                   "                throw exception;\n" +
+                   "            }\n" +
+                   "        }\n\n" +
+                   "    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Warm-up methods are called level by level, those of one level concurrently, so each bean is warmed up after its
+     * dependencies. A pooled bean warms up an instance borrowed from its pool. In lazy mode, the beans are created by
+     * their warm-up, if they were not used before.
+     */
+    private void writeWarmUp(SourceWriter out, ChunkLayout layout, List<Bean> warmedBeans) {
+        long threads = warmedBeans.stream()
+                .collect(Collectors.groupingBy(b -> layout.getLevelIndex(b.getName()), Collectors.counting()))
+                .values().stream().mapToLong(Long::longValue).max().orElse(1);
+        //@formatter:off
+        out      .append("    public boolean warmUp(java.time.Duration budget) {\n")
+                .append("        WarmUp warmUp = new WarmUp(").append(threads).append(", budget);\n");
+        for (Bean bean : warmedBeans) {
+            String reference = lookupReference(layout, 0, bean.getName());
+            String call = bean.isPooled()
+                    ? "{\n" +
+                      "            try (PoolHandle<" + bean.getType() + "> handle = " + reference + ".borrow()) {\n" +
+                      "                handle.get()." + bean.getWarmupMethod() + "();\n" +
+                      "            }\n" +
+                      "        }"
+                    : reference + "." + bean.getWarmupMethod() + "()";
+            out  .append("        warmUp.run(").append(layout.getLevelIndex(bean.getName())).append(", \"").append(bean.getName())
+                .append("\", () -> ").append(call).append(");\n");
+        }
+        out      .append("        return warmUp.finish();\n")
+                .append("    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Warm-up methods run on threads of an executor, so the calling thread stops waiting when the budget is spent.
+     * The running ones are interrupted then, and the following levels are skipped. Failures are reported at the end.
+     */
+    private void writeWarmUpClass(SourceWriter out) {
+        //@formatter:off
+        out.append("    @FunctionalInterface\n" +
+                   "    private interface WarmUpMethod {\n" +
+                   "        void run() throws Exception;\n" +
+                   "    }\n\n" +
+                   "    private static final class WarmUp {\n\n" +
+                   "        private final java.util.concurrent.ExecutorService executor;\n" +
+                   "        private final long deadline;\n" +
+                   "        private final java.util.List<String> levelBeans = new java.util.ArrayList<>();\n" +
+                   "        private final java.util.List<java.util.concurrent.Future<?>> levelFutures = new java.util.ArrayList<>();\n" +
+                   "        private final java.util.List<Throwable> failures = new java.util.ArrayList<>();\n" +
+                   "        private int level = -1;\n" +
+                   "        private boolean expired;\n\n" +
+                   "        WarmUp(int threads, java.time.Duration budget) {\n" +
+                   "            this.executor = java.util.concurrent.Executors.newFixedThreadPool(threads, runnable -> {\n" +
+                   "                Thread thread = new Thread(runnable, \"" + config.getInjectorName() + "-warmup\");\n" +
+                   "                thread.setDaemon(true);\n" +
+                   "                return thread;\n" +
+                   "            });\n" +
+                   "            this.deadline = System.nanoTime() + budget.toNanos();\n" +
+                   "        }\n\n" +
+                   "        void run(int level, String bean, WarmUpMethod method) {\n" +
+                   "            if (level != this.level) {\n" +
+                   "                awaitLevel();\n" +
+                   "                this.level = level;\n" +
+                   "            }\n" +
+                   "            if (!expired) {\n" +
+                   "                levelBeans.add(bean);\n" +
+                   "                levelFutures.add(executor.submit(() -> {\n" +
+                   "                    method.run();\n" +
+                   "                    return null;\n" +
+                   "                }));\n" +
+                   "            }\n" +
+                   "        }\n\n" +
+                   "        private void awaitLevel() {\n" +
+                   "            for (int i = 0; i < levelFutures.size(); i++) {\n" +
+                   "                try {\n" +
+                   "                    levelFutures.get(i).get(deadline - System.nanoTime(), java.util.concurrent.TimeUnit.NANOSECONDS);\n" +
+                   "                } catch (java.util.concurrent.ExecutionException e) {\n" +
+                   "                    failures.add(new IllegalStateException(\"Failed to warm up bean '\" + levelBeans.get(i) + \"'\", e.getCause()));\n" +
+                   "                } catch (java.util.concurrent.TimeoutException e) {\n" +
+                   "                    expired = true;\n" +
+                   "                } catch (InterruptedException e) {\n" +
+                   "                    Thread.currentThread().interrupt();\n" +
+                   "                    expired = true;\n" +
+                   "                }\n" +
+                   "            }\n" +
+                   "            levelBeans.clear();\n" +
+                   "            levelFutures.clear();\n" +
+                   "        }\n\n" +
+                   "        boolean finish() {\n" +
+                   "            awaitLevel();\n" +
+                   "            executor.shutdownNow();\n" +
+                   "            if (!failures.isEmpty()) {\n" +
+                   "                IllegalStateException exception = new IllegalStateException(\"Failed to warm up beans\");\n" +
+                   "                failures.forEach(exception::addSuppressed);\n" +
+                   "                throw exception;\n" +
+                   "            }\n" +
+                   "            return !expired;\n" +
+                   "        }\n\n" +
+                   "    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * JFR events of the injector. The thread creating each bean is recorded by JFR itself, so in parallel mode it shows
+     * which beans were created concurrently. In lazy mode, creation of a bean includes creation of its dependencies
+     * which were not used before.
+     */
+    private void writeEvents(SourceWriter out, String packageName) {
+        String eventPrefix = (packageName.isEmpty() ? "" : packageName + ".") + config.getInjectorName();
+        //@formatter:off
+        out.append("    @jdk.jfr.Name(\"" + eventPrefix + ".BeanCreation\")\n" +
+                   "    @jdk.jfr.Label(\"Bean Creation\")\n" +
+                   "    @jdk.jfr.Category(\"hello-di\")\n" +
+                   "    @jdk.jfr.StackTrace(false)\n" +
+                   "    static final class BeanCreationEvent extends jdk.jfr.Event {\n" +
+                   "        @jdk.jfr.Label(\"Bean\")\n" +
+                   "        String bean;\n" +
+                   "        @jdk.jfr.Label(\"Bean Type\")\n" +
+                   "        Class<?> beanType;\n" +
+                   "        @jdk.jfr.Label(\"Level\")\n" +
+                   "        @jdk.jfr.Description(\"Depth in the dependency graph, beans without dependencies are at level 0\")\n" +
+                   "        int level;\n" +
+                   "    }\n\n" +
+                   "    @jdk.jfr.Name(\"" + eventPrefix + ".Wiring\")\n" +
+                   "    @jdk.jfr.Label(\"Wiring\")\n" +
+                   "    @jdk.jfr.Category(\"hello-di\")\n" +
+                   "    static final class WiringEvent extends jdk.jfr.Event {\n" +
+                   "        @jdk.jfr.Label(\"Beans\")\n" +
+                   "        int beans;\n" +
+                   "        @jdk.jfr.Label(\"Levels\")\n" +
+                   "        int levels;\n" +
+                   "        @jdk.jfr.Label(\"Widest Level\")\n" +
+                   "        int widestLevel;\n" +
+                   "    }\n\n" +
+                   "    private static BeanCreationEvent beginCreation(String bean, int level) {\n" +
+                   "        BeanCreationEvent event = new BeanCreationEvent();\n" +
+                   "        event.begin();\n" +
+                   "        event.bean = bean;\n" +
+                   "        event.level = level;\n" +
+                   "        return event;\n" +
+                   "    }\n\n" +
+                   "    private static <T> T endCreation(BeanCreationEvent event, T bean) {\n" +
+                   "        event.end();\n" +
+                   "        if (event.shouldCommit()) {\n" +
+                   "            event.beanType = bean.getClass();\n" +
+                   "            event.commit();\n" +
+                   "        }\n" +
+                   "        return bean;\n" +
+                   "    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * In lazy mode, each bean is created on first call of its getter, using double-checked locking on the injector.
+     * Otherwise, getters are needed only for beans injected via {@link javax.inject.Provider}.
+     */
+    private void writeGetters(SourceWriter out, ChunkLayout layout, int chunk, Set<String> providedBeanNames) {
+        String lock = chunk == 0 ? "this" : "injector";
+        //@formatter:off
+        layout.getBeans(chunk).forEach(bean -> {
+            String name = bean.getName();
+            if (config.isLazy()) {
+                out.append("    private ").append(fieldType(bean)).append(" ").append(getterName(name)).append("() {\n")
+                  .append("        ").append(fieldType(bean)).append(" bean = ").append(name).append(";\n")
+                  .append("        if (bean == null) {\n")
+                  .append("            synchronized (").append(lock).append(") {\n")
+                  .append("                bean = ").append(name).append(";\n")
+                  .append("                if (bean == null) {\n");
+                // published only after the bean is initialized, the field is read without locking
+                writeCreationStatements(out, bean, createInstantiation(layout, chunk, bean), "bean", "                    ");
+                out.append("                    ").append(name).append(" = bean;\n")
+                  .append("                }\n")
+                  .append("            }\n")
+                  .append("        }\n")
+                  .append("        return bean;\n")
+                  .append("    }\n\n");
+            } else if (providedBeanNames.contains(name)) {
+                writeProviderGetter(out, bean);
+            }
+        });
+        //@formatter:on
+    }
+
+    private void writeProviderGetter(SourceWriter out, Bean bean) {
+        String name = bean.getName();
+        out.append("    private ").append(bean.getType()).append(" ").append(getterName(name)).append("() {\n")
+          .append("        if (").append(name).append(" == null) {\n")
+          .append("            throw new IllegalStateException(\"Bean '").append(name).append("' can not be provided before it is created\");\n")
+          .append("        }\n")
+          .append("        return ").append(name).append(";\n")
+          .append("    }\n\n");
+    }
+
+    /**
+     * Writes statements creating the bean into the given variable, and initializing it (waiting for its asynchronous
+     * initialization to complete). For a pooled bean, its pool is created instead.
+     */
+    private void writeCreationStatements(SourceWriter out, Bean bean, String instantiation, String variable, String indentation) {
+        if (bean.isPooled()) {
+            out.append(indentation).append(variable).append(" = ");
+            writePoolCreation(out, bean, instantiation, indentation);
+            out.append(";\n");
+            return;
+        }
+        out.append(indentation).append(variable).append(" = ").append(instantiation).append(";\n");
+        if (bean.getPostConstructMethod() != null) {
+            out.append(indentation).append(variable).append(".").append(bean.getPostConstructMethod()).append("();\n");
+        }
+        if (bean.getAsyncInitMethod() != null) {
+            out.append(indentation).append(variable).append(".").append(bean.getAsyncInitMethod()).append("().toCompletableFuture().join();\n");
+        }
+    }
+
+    /**
+     * Writes expression creating the pool of a pooled bean, with a factory creating and initializing each instance of
+     * the bean, in the same way as a bean which is not pooled.
+     */
+    private void writePoolCreation(SourceWriter out, Bean bean, String instantiation, String indentation) {
+        out.append("new ObjectPool<>(").append(bean.getPoolSize()).append(", ");
+        if (bean.getPostConstructMethod() == null && bean.getAsyncInitMethod() == null) {
+            out.append("() -> ").append(instantiation);
+        } else {
+            out.append("() -> {\n")
+              .append(indentation).append("    ").append(bean.getType()).append(" instance = ").append(instantiation).append(";\n");
+            if (bean.getPostConstructMethod() != null) {
+                out.append(indentation).append("    instance.").append(bean.getPostConstructMethod()).append("();\n");
+            }
+            if (bean.getAsyncInitMethod() != null) {
+                out.append(indentation).append("    instance.").append(bean.getAsyncInitMethod()).append("().toCompletableFuture().join();\n");
+            }
+            out.append(indentation).append("    return instance;\n")
+              .append(indentation).append("}");
+        }
+        // not a method reference, a qualified type there is resolved as an expression, which a field can obscure
+        String destruction = bean.getDestroyMethod() != null
+                ? "(" + bean.getType() + " instance) -> instance." + bean.getDestroyMethod() + "()"
+                : "null";
+        out.append(", ").append(destruction).append(")");
+    }
+
+    private String createInstantiation(ChunkLayout layout, int chunk, Bean bean) {
+        String arguments = bean.getDependencies().stream()
+                .map(d -> argument(layout, chunk, d))
+                .collect(Collectors.joining(", "));
+        return instrument(bean, layout.getLevelIndex(bean.getName()), "new " + bean.getInstantiatedType() + "(" + arguments + ")");
+    }
+
+    private String instrument(Bean bean, int level, String instantiation) {
+        if (config.isJfr()) {
+            // arguments are evaluated in order, so the event begins right before the constructor is called
+            return "endCreation(beginCreation(\"" + bean.getName() + "\", " + level + "), " + instantiation + ")";
+        }
+        return instantiation;
+    }
+
+    private String argument(ChunkLayout layout, int chunk, Dependency dependency) {
+        String name = dependency.getBeanName();
+        if (dependency.isMultibinding()) {
+            return createCollection(dependency, element -> reference(layout, chunk, element));
+        } else if (dependency.isConfigValue()) {
+            return configValue(dependency);
+        } else if (dependency.getKind() == Dependency.Kind.PROVIDER) {
+            int target = layout.getChunkIndex(name);
+            if (target == chunk) {
+                return "this::" + getterName(name);
+            } else {
+                // the target chunk may not exist yet, so it is resolved only when the provider is called
+                return "() -> " + layout.qualifier(chunk, target) + getterName(name) + "()";
+            }
+        } else {
+            return reference(layout, chunk, name);
+        }
+    }
+
+    /**
+     * Values known at compile time are literals, so nothing is parsed when the bean is created, and the JIT sees them
+     * as constants. Runtime values are read from system properties, with the compile time value as the default.
+     */
+    private static String configValue(Dependency dependency) {
+        String type = dependency.getInjectedType();
+        String value = dependency.getValue();
+        if (dependency.getKind() == Dependency.Kind.RUNTIME_VALUE) {
+            String read = "configValue(" + literal(dependency.getConfigKey()) + ", " + (value == null ? "null" : literal(value)) + ")";
+            switch (type) {
+                case "int":
+                    return "Integer.parseInt(" + read + ".trim())";
+                case "long":
+                    return "Long.parseLong(" + read + ".trim())";
+                case "java.time.Duration":
+                    return "java.time.Duration.parse(" + read + ".trim())";
+                default:
+                    return read;
+            }
+        }
+        switch (type) {
+            case "int":
+                return Integer.toString(Integer.parseInt(value.trim()));
+            case "long":
+                return Long.parseLong(value.trim()) + "L";
+            case "java.time.Duration":
+                Duration duration = Duration.parse(value.trim());
+                return "java.time.Duration.ofSeconds(" + duration.getSeconds() + "L" +
+                        (duration.getNano() != 0 ? ", " + duration.getNano() : "") + ")";
+            default:
+                return literal(value);
+        }
+    }
+
+    /**
+     * Unicode escapes are translated before the source is parsed, so line terminators and other control chars are
+     * written as escape sequences, and Unicode escapes are used only for chars beyond Latin-1. Octal escapes always
+     * have three digits, a digit following a shorter one would be taken as a part of it.
+     *
+     * @return Java string literal of the given value
+     */
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c >= ' ' && c < 0x7f) {
+                literal.append(c);
+            } else if (c == '\n') {
+                literal.append("\\n");
+            } else if (c == '\r') {
+                literal.append("\\r");
+            } else if (c == '\t') {
+                literal.append("\\t");
+            } else if (c == '\b') {
+                literal.append("\\b");
+            } else if (c == '\f') {
+                literal.append("\\f");
+            } else if (c < 0x100) {
+                literal.append('\\');
+                for (int shift = 6; shift >= 0; shift -= 3) {
+                    literal.append(Character.forDigit((c >> shift) & 7, 8));
+                }
+            } else {
+                literal.append("\\u");
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    literal.append(Character.forDigit((c >> shift) & 0xf, 16));
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void writeConfigValueHelper(SourceWriter out) {
+        //@formatter:off
+        out.append("    private static String configValue(String key, String defaultValue) {\n" +
+                   "        String value = System.getProperty(key, defaultValue);\n" +
+                   "        if (value == null) {\n" +
+                   "            throw new IllegalStateException(\"Missing configuration value '\" + key + \"', it has to be set as a system property\");\n" +
+                   "        }\n" +
+                   "        return value;\n" +
+                   "    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Collections of beans are immutable and backed by arrays, via {@link List#of}. Iteration order is the order of
+     * {@link Dependency#getElementBeanNames()}.
+     */
+    private String createCollection(Dependency dependency, Function<String, String> reference) {
+        String elements = dependency.getElementBeanNames().stream()
+                .map(name -> dependency.getKind() == Dependency.Kind.MAP
+                        ? "java.util.Map.entry(\"" + name + "\", " + reference.apply(name) + ")"
+                        : reference.apply(name))
+                .collect(Collectors.joining(", "));
+        String list = "java.util.List.of(" + elements + ")";
+        switch (dependency.getKind()) {
+            case SET:
+                return "new ArraySet<>(" + list + ")";
+            case MAP:
+                return "new ArrayMap<>(" + list + ")";
+            default:
+                return list;
+        }
+    }
+
+    /**
+     * Set and map views of a list, with the order of the list. They rely on the elements being distinct beans, and on
+     * the list being immutable.
+     */
+    private void writeCollectionClasses(SourceWriter out) {
+        //@formatter:off
+        out.append("    private static final class ArraySet<E> extends java.util.AbstractSet<E> {\n\n" +
+                   "        private final java.util.List<E> elements;\n\n" +
+                   "        ArraySet(java.util.List<E> elements) {\n" +
+                   "            this.elements = elements;\n" +
+                   "        }\n\n" +
+                   "        @Override\n" +
+                   "        public java.util.Iterator<E> iterator() {\n" +
+                   "            return elements.iterator();\n" +
+                   "        }\n\n" +
+                   "        @Override\n" +
+                   "        public int size() {\n" +
+                   "            return elements.size();\n" +
+                   "        }\n\n" +
+                   "    }\n\n" +
+                   "    private static final class ArrayMap<V> extends java.util.AbstractMap<String, V> {\n\n" +
+                   "        private final java.util.Set<java.util.Map.Entry<String, V>> entries;\n\n" +
+                   "        ArrayMap(java.util.List<java.util.Map.Entry<String, V>> entries) {\n" +
+                   "            this.entries = new ArraySet<>(entries);\n" +
+                   "        }\n\n" +
+                   "        @Override\n" +
+                   "        public java.util.Set<java.util.Map.Entry<String, V>> entrySet() {\n" +
+                   "            return entries;\n" +
+                   "        }\n\n" +
+                   "    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Pool of instances of a pooled bean. Its slots are claimed by compare-and-set, from a slot chosen by the borrowing
+     * thread (so threads tend to reuse their own instances, without contention), probing the following slots if it is
+     * taken. When all the slots are taken, an instance beyond the size of the pool is created, and destroyed when
+     * returned. Each borrow gets a handle of its own, which gives up the slot when closed, so a closed handle can not
+     * reach an instance borrowed by someone else later. The handle is all a borrow allocates otherwise.
+     * <p>
+     * When the pool is destroyed, it destroys the idle instances, the instances borrowed at that moment are destroyed
+     * when returned.
+     */
+    private void writePoolClasses(SourceWriter out) {
+        //@formatter:off
+        out.append("    @FunctionalInterface\n" +
+                   "    private interface PoolDestruction<T> {\n" +
+                   "        void destroy(T instance) throws Exception;\n" +
+                   "    }\n\n" +
+                   "    private static final class ObjectPool<T> implements eu.nyerel.hellodi.pool.Pool<T> {\n\n" +
+                   "        private final PooledInstance<T>[] slots;\n" +
+                   "        private final java.util.function.Supplier<T> factory;\n" +
+                   "        private final PoolDestruction<T> destruction;\n" +
+                   "        private volatile boolean destroyed;\n\n" +
+                   "        @SuppressWarnings({\"unchecked\", \"rawtypes\"})\n" +
+                   "        ObjectPool(int size, java.util.function.Supplier<T> factory, PoolDestruction<T> destruction) {\n" +
+                   "            this.slots = new PooledInstance[size > 0 ? size : 2 * Runtime.getRuntime().availableProcessors()];\n" +
+                   "            for (int i = 0; i < slots.length; i++) {\n" +
+                   "                slots[i] = new PooledInstance<>(this, true);\n" +
+                   "            }\n" +
+                   "            this.factory = factory;\n" +
+                   "            this.destruction = destruction;\n" +
+                   "        }\n\n" +
+                   "        @Override\n" +
+                   "        public PoolHandle<T> borrow() {\n" +
+                   "            if (destroyed) {\n" +
+                   "                throw new IllegalStateException(\"Pool was destroyed, the injector is closed\");\n" +
+                   "            }\n" +
+                   "            int index = (System.identityHashCode(Thread.currentThread()) & 0x7fffffff) % slots.length;\n" +
+                   "            for (int i = 0; i < slots.length; i++) {\n" +
+                   "                PooledInstance<T> slot = slots[index];\n" +
+                   "                if (slot.borrowed == 0 && PooledInstance.BORROWED.compareAndSet(slot, 0, 1)) {\n" +
+                   "                    if (slot.instance == null) {\n" +
+                   "                        try {\n" +
+                   "                            slot.instance = factory.get();\n" +
+                   "                        } catch (RuntimeException | Error e) {\n" +
+                   "                            PooledInstance.BORROWED.set(slot, 0);\n" +
+                   "                            throw e;\n" +
+                   "                        }\n" +
+                   "                    }\n" +
+                   "                    return new PoolHandle<>(slot);\n" +
+                   "                }\n" +
+                   "                index = index + 1 < slots.length ? index + 1 : 0;\n" +
+                   "            }\n" +
+                   "            PooledInstance<T> overflow = new PooledInstance<>(this, false);\n" +
+                   "            overflow.instance = factory.get();\n" +
+                   "            overflow.borrowed = 1;\n" +
+                   "            return new PoolHandle<>(overflow);\n" +
+                   "        }\n\n" +
+                   "        void destroy() throws Exception {\n" +
+                   "            destroyed = true;\n" +
+                   "            Exception failure = null;\n" +
+                   "            for (PooledInstance<T> slot : slots) {\n" +
+                   "                if (PooledInstance.BORROWED.compareAndSet(slot, 0, 1) && slot.instance != null) {\n" +
+                   "                    try {\n" +
+                   "                        drop(slot.instance);\n" +
+                   "                    } catch (Exception e) {\n" +
+                   "                        if (failure == null) {\n" +
+                   "                            failure = e;\n" +
+                   "                        } else {\n" +
+                   "                            failure.addSuppressed(e);\n" +
+                   "                        }\n" +
+                   "                    }\n" +
+                   "                    slot.instance = null;\n" +
+                   "                }\n" +
+                   "            }\n" +
+                   "            if (failure != null) {\n" +
+                   "                throw failure;\n" +
+                   "            }\n" +
+                   "        }\n\n" +
+                   "        void drop(T instance) throws Exception {\n" +
+                   "            if (destruction != null) {\n" +
+                   "                destruction.destroy(instance);\n" +
+                   "            }\n" +
+                   "        }\n\n" +
+                   "    }\n\n" +
+                   "    private static final class PooledInstance<T> {\n\n" +
+                   "        @SuppressWarnings(\"rawtypes\")\n" +
+                   "        static final java.util.concurrent.atomic.AtomicIntegerFieldUpdater<PooledInstance> BORROWED =\n" +
+                   "                java.util.concurrent.atomic.AtomicIntegerFieldUpdater.newUpdater(PooledInstance.class, \"borrowed\");\n\n" +
+                   "        private final ObjectPool<T> pool;\n" +
+                   "        private final boolean pooled;\n" +
+                   "        // written by the borrowing thread only, published by the release of the slot\n" +
+                   "        T instance;\n" +
+                   "        volatile int borrowed;\n\n" +
+                   "        PooledInstance(ObjectPool<T> pool, boolean pooled) {\n" +
+                   "            this.pool = pool;\n" +
+                   "            this.pooled = pooled;\n" +
+                   "        }\n\n" +
+                   "        void release() {\n" +
+                   "            borrowed = 0;\n" +
+                   "            // the pool may have been destroyed while the instance was borrowed, then whoever claims the slot first destroys it\n" +
+                   "            if (!pooled || pool.destroyed && BORROWED.compareAndSet(this, 0, 1)) {\n" +
+                   "                T dropped = instance;\n" +
+                   "                instance = null;\n" +
+                   "                try {\n" +
+                   "                    pool.drop(dropped);\n" +
+                   "                } catch (Exception e) {\n" +
+                   "                    throw new IllegalStateException(\"Failed to destroy pooled instance\", e);\n" +
+                   "                }\n" +
+                   "            }\n" +
+                   "        }\n\n" +
+                   "    }\n\n" +
+                   "    private static final class PoolHandle<T> implements eu.nyerel.hellodi.pool.Pool.Handle<T> {\n\n" +
+                   "        @SuppressWarnings(\"rawtypes\")\n" +
+                   "        static final java.util.concurrent.atomic.AtomicReferenceFieldUpdater<PoolHandle, PooledInstance> SLOT =\n" +
+                   "                java.util.concurrent.atomic.AtomicReferenceFieldUpdater.newUpdater(PoolHandle.class, PooledInstance.class, \"slot\");\n\n" +
+                   "        private final T instance;\n" +
+                   "        // cleared when the handle is closed, the slot may be borrowed again then\n" +
+                   "        private volatile PooledInstance<T> slot;\n\n" +
+                   "        PoolHandle(PooledInstance<T> slot) {\n" +
+                   "            this.instance = slot.instance;\n" +
+                   "            this.slot = slot;\n" +
+                   "        }\n\n" +
+                   "        @Override\n" +
+                   "        public T get() {\n" +
+                   "            if (slot == null) {\n" +
+                   "                throw new IllegalStateException(\"Instance was already returned to the pool\");\n" +
+                   "            }\n" +
+                   "            return instance;\n" +
+                   "        }\n\n" +
+                   "        @Override\n" +
+                   "        @SuppressWarnings(\"unchecked\")\n" +
+                   "        public void close() {\n" +
+                   "            PooledInstance<T> released = SLOT.getAndSet(this, null);\n" +
+                   "            if (released == null) {\n" +
+                   "                throw new IllegalStateException(\"Instance was already returned to the pool\");\n" +
+                   "            }\n" +
+                   "            released.release();\n" +
+                   "        }\n\n" +
+                   "    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * @return expression evaluating to the bean in context of the given chunk
+     */
+    private String reference(ChunkLayout layout, int chunk, String beanName) {
+        String qualifier = layout.qualifier(chunk, layout.getChunkIndex(beanName));
+        return qualifier + (config.isLazy() ? getterName(beanName) + "()" : beanName);
+    }
+
+    /**
+     * @return same as {@link #reference}, but qualified also within the chunk, as a bean may have the name of a
+     * parameter of the lookup method
+     */
+    private String lookupReference(ChunkLayout layout, int chunk, String beanName) {
+        String reference = reference(layout, chunk, beanName);
+        return layout.getChunkIndex(beanName) == chunk ? "this." + reference : reference;
+    }
+
+    /**
+     * @return type of the field holding the bean, which is the pool of the bean for a pooled bean
+     */
+    private static String fieldType(Bean bean) {
+        return bean.isPooled() ? "ObjectPool<" + bean.getType() + ">" : bean.getType();
+    }
+
+    /**
+     * @return type the bean is exposed as by the injector
+     */
+    private static String publicType(Bean bean) {
+        return bean.isPooled() ? "eu.nyerel.hellodi.pool.Pool<" + bean.getType() + ">" : bean.getType();
+    }
+
+    private static String getterName(String beanName) {
+        return "get" + StringUtil.makeFirstLetterUpperCase(beanName);
     }
 
-}
\ No newline at end of file
+}
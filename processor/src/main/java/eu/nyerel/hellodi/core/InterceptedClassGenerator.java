@@ -0,0 +1,134 @@
+package eu.nyerel.hellodi.core;
+
+import eu.nyerel.hellodi.model.InterceptedClass;
+import eu.nyerel.hellodi.model.InterceptedMethod;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates subclasses of intercepted beans. Each overriding method nests calls of its interceptors, the innermost
+ * calling the method of the bean class. The interceptors are called directly, without reflection or proxies, and the
+ * call sites are not shared by methods, so each of them sees a single interceptor and a single invocation lambda.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+public class InterceptedClassGenerator {
+
+    private static final String INTERCEPTOR = "eu.nyerel.hellodi.intercept.Interceptor";
+    private static final String INVOCATION = "eu.nyerel.hellodi.intercept.Invocation";
+    private static final Map<String, String> BOXED_TYPES = Map.of(
+            "boolean", "java.lang.Boolean",
+            "byte", "java.lang.Byte",
+            "short", "java.lang.Short",
+            "char", "java.lang.Character",
+            "int", "java.lang.Integer",
+            "long", "java.lang.Long",
+            "float", "java.lang.Float",
+            "double", "java.lang.Double",
+            "void", "java.lang.Object");
+
+    /**
+     * Writes source of the subclass to the writer, the writer is flushed but not closed.
+     */
+    public void generate(InterceptedClass interceptedClass, Writer writer) throws IOException {
+        SourceWriter out = new SourceWriter(writer);
+        List<String> interceptorNames = new ArrayList<>();
+        for (int i = 0; i < interceptedClass.getBindings().size(); i++) {
+            interceptorNames.add(freeName("interceptor" + i, interceptedClass.getConstructorParameterNames()));
+        }
+        //@formatter:off
+        if (!interceptedClass.getPackageName().isEmpty()) {
+            out  .append("package ").append(interceptedClass.getPackageName()).append(";\n\n");
+        }
+        out      .append("public final class ").append(interceptedClass.getSimpleName())
+                .append(" extends ").append(interceptedClass.getSuperclass()).append(" {\n\n");
+        for (int i = 0; i < interceptorNames.size(); i++) {
+            out  .append("    // @").append(interceptedClass.getBindings().get(i)).append("\n")
+                .append("    private final ").append(INTERCEPTOR).append(" ").append(interceptorNames.get(i)).append(";\n");
+        }
+        out      .append("\n")
+                .append("    public ").append(interceptedClass.getSimpleName()).append("(");
+        List<String> parameters = new ArrayList<>();
+        for (int i = 0; i < interceptedClass.getConstructorParameterNames().size(); i++) {
+            parameters.add(interceptedClass.getConstructorParameterTypes().get(i) + " " + interceptedClass.getConstructorParameterNames().get(i));
+        }
+        interceptorNames.forEach(name -> parameters.add(INTERCEPTOR + " " + name));
+        out      .append(String.join(", ", parameters)).append(")").append(throwsClause(interceptedClass.getConstructorThrownTypes())).append(" {\n")
+                .append("        super(").append(String.join(", ", interceptedClass.getConstructorParameterNames())).append(");\n");
+        interceptorNames.forEach(name -> {
+            out.append("        this.").append(name).append(" = ").append(name).append(";\n");
+        });
+        out      .append("    }\n\n");
+        for (InterceptedMethod method : interceptedClass.getMethods()) {
+            writeMethod(out, interceptedClass, method, interceptorNames);
+        }
+        out      .append("}\n");
+        //@formatter:on
+        out.flush();
+    }
+
+    private void writeMethod(SourceWriter out, InterceptedClass interceptedClass, InterceptedMethod method, List<String> interceptorNames) {
+        List<String> parameters = new ArrayList<>();
+        for (int i = 0; i < method.getParameterNames().size(); i++) {
+            parameters.add(method.getParameterTypes().get(i) + " " + method.getParameterNames().get(i));
+        }
+        String arguments = freeName("arguments", method.getParameterNames());
+        String exception = freeName("e", method.getParameterNames());
+        String resultType = BOXED_TYPES.getOrDefault(method.getReturnType(), method.getReturnType());
+        String call = "super." + method.getName() + "(" + String.join(", ", method.getParameterNames()) + ")";
+        if (method.isVoid()) {
+            call = "{ " + call + "; return null; }";
+        }
+        // the innermost interceptor is called first, the outermost wraps the others
+        for (int i = method.getBindings().size() - 1; i >= 0; i--) {
+            String interceptor = interceptorNames.get(interceptedClass.getBindings().indexOf(method.getBindings().get(i)));
+            call = "this." + interceptor + ".intercept(new " + INVOCATION + "<" + resultType + ">(this, \"" + method.getName() + "\", " +
+                    arguments + ", () -> " + call + "))";
+        }
+        boolean wrapping = !method.isThrowingAll();
+        String indentation = wrapping ? "            " : "        ";
+        //@formatter:off
+        out      .append("    @Override\n")
+                .append("    ").append(method.getModifier()).append(" ")
+                .append(method.getTypeParameters().isEmpty() ? "" : method.getTypeParameters() + " ")
+                .append(method.getReturnType()).append(" ").append(method.getName()).append("(").append(String.join(", ", parameters)).append(")")
+                .append(throwsClause(method.getThrownTypes())).append(" {\n")
+                .append("        Object[] ").append(arguments).append(" = {").append(String.join(", ", method.getParameterNames())).append("};\n");
+        if (wrapping) {
+            out  .append("        try {\n");
+        }
+        out      .append(indentation).append(method.isVoid() ? "" : "return ").append(call).append(";\n");
+        if (wrapping) {
+            List<String> rethrown = new ArrayList<>();
+            rethrown.add("RuntimeException");
+            rethrown.addAll(method.getRethrownTypes());
+            out  .append("        } catch (").append(String.join(" | ", rethrown)).append(" ").append(exception).append(") {\n")
+                .append("            throw ").append(exception).append(";\n")
+                .append("        } catch (Exception ").append(exception).append(") {\n")
+                .append("            throw new java.lang.reflect.UndeclaredThrowableException(").append(exception).append(");\n")
+                .append("        }\n");
+        }
+        out      .append("    }\n\n");
+        //@formatter:on
+    }
+
+    private static String throwsClause(List<String> thrownTypes) {
+        return thrownTypes.isEmpty() ? "" : " throws " + String.join(", ", thrownTypes);
+    }
+
+    /**
+     * @return the given name, suffixed if needed not to clash with any of the taken names
+     */
+    private static String freeName(String name, List<String> takenNames) {
+        String free = name;
+        for (int i = 1; takenNames.contains(free); i++) {
+            free = name + "_" + i;
+        }
+        return free;
+    }
+
+}
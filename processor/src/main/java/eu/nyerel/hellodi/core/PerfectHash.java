@@ -0,0 +1,177 @@
+package eu.nyerel.hellodi.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal perfect hash of strings, computed by the "hash and displace" method. Hash codes of the keys are distributed
+ * into as many buckets as there are distinct hash codes. For each bucket a seed is found, which maps all the hash codes
+ * of the bucket to free slots (buckets with a single hash code get a free slot directly). Keys with equal hash codes
+ * share a slot. The seeds are stored as chars, so they can be generated into a string constant.
+ * <p>
+ * A key is looked up by {@link String#hashCode()}, which is specified and so computed the same way at runtime. The
+ * same lookup is generated into the injector, see {@link #writeSource(SourceWriter, String)}.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class PerfectHash {
+
+    /**
+     * Seeds with this bit set hold the slot of a single key directly.
+     */
+    static final int DIRECT_SLOT = 0x8000;
+    /**
+     * Seeds are generated into a single string constant, which is limited to 65535 bytes in a class file. A seed takes
+     * up to 3 bytes there.
+     */
+    static final int MAX_KEYS = 20000;
+
+    private final int size;
+    private final char[] seeds;
+    private final int[] slots;
+
+    private PerfectHash(int size, char[] seeds, int[] slots) {
+        this.size = size;
+        this.seeds = seeds;
+        this.slots = slots;
+    }
+
+    /**
+     * @return perfect hash of the given distinct keys, or null if there are too many keys. Keys with equal hash codes
+     * can not be told apart by any seed, so they share a slot, and the lookup has to check each of them.
+     * @throws IllegalStateException if no seed is found for a bucket, which is not expected for distinct hash codes
+     */
+    static PerfectHash create(List<String> keys) {
+        if (keys.isEmpty() || keys.size() > MAX_KEYS) {
+            return null;
+        }
+        Map<Integer, List<String>> keysByHash = keys.stream().collect(Collectors.groupingBy(String::hashCode));
+        int[] hashes = keys.stream().mapToInt(String::hashCode).distinct().toArray();
+        int size = hashes.length;
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            buckets.get(index(hashes[i], 0, size)).add(i);
+        }
+        Integer[] bucketOrder = new Integer[size];
+        Arrays.setAll(bucketOrder, i -> i);
+        Arrays.sort(bucketOrder, Comparator.comparingInt(b -> -buckets.get(b).size()));
+
+        char[] seeds = new char[size];
+        Map<Integer, Integer> slotsByHash = new HashMap<>();
+        boolean[] occupied = new boolean[size];
+        int freeSlot = 0;
+        for (int bucketIndex : bucketOrder) {
+            List<Integer> bucket = buckets.get(bucketIndex);
+            if (bucket.size() > 1) {
+                int seed = findSeed(hashes, bucket, occupied);
+                if (seed < 0) {
+                    throw new IllegalStateException("No seed of the perfect hash maps hash codes of keys " +
+                            bucket.stream().map(i -> keysByHash.get(hashes[i])).collect(Collectors.toList()) + " to free slots");
+                }
+                seeds[bucketIndex] = (char) seed;
+                for (int hashIndex : bucket) {
+                    int slot = index(hashes[hashIndex], seed, size);
+                    occupied[slot] = true;
+                    slotsByHash.put(hashes[hashIndex], slot);
+                }
+            } else if (bucket.size() == 1) {
+                while (occupied[freeSlot]) {
+                    freeSlot++;
+                }
+                occupied[freeSlot] = true;
+                seeds[bucketIndex] = (char) (DIRECT_SLOT + freeSlot);
+                slotsByHash.put(hashes[bucket.get(0)], freeSlot);
+            }
+        }
+        int[] slots = keys.stream().mapToInt(key -> slotsByHash.get(key.hashCode())).toArray();
+        return new PerfectHash(size, seeds, slots);
+    }
+
+    private static int findSeed(int[] hashes, List<Integer> bucket, boolean[] occupied) {
+        int size = occupied.length;
+        int[] bucketSlots = new int[bucket.size()];
+        for (int seed = 1; seed < DIRECT_SLOT; seed++) {
+            boolean found = true;
+            for (int i = 0; i < bucket.size() && found; i++) {
+                int slot = index(hashes[bucket.get(i)], seed, size);
+                bucketSlots[i] = slot;
+                found = !occupied[slot];
+                for (int j = 0; j < i && found; j++) {
+                    found = bucketSlots[j] != slot;
+                }
+            }
+            if (found) {
+                return seed;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes source of a constant {@code <PREFIX>_SEEDS}, and of methods {@code int <prefix>Slot(String key)} and
+     * {@code int <prefix>Index(int hash, int seed)}, the first one returning slot of a key as {@link #getSlot(int)}.
+     */
+    void writeSource(SourceWriter out, String prefix) {
+        String seedsField = prefix.toUpperCase() + "_SEEDS";
+        String slotMethod = prefix + "Slot";
+        String indexMethod = prefix + "Index";
+        //@formatter:off
+        out.append("    private static final String ").append(seedsField).append(" = \"").append(escape(seeds)).append("\";\n\n");
+        out.append("    private static int " + slotMethod + "(String key) {\n" +
+                   "        int hash = key.hashCode();\n" +
+                   "        int seed = " + seedsField + ".charAt(" + indexMethod + "(hash, 0));\n" +
+                   "        return seed >= " + DIRECT_SLOT + " ? seed - " + DIRECT_SLOT + " : " + indexMethod + "(hash, seed);\n" +
+                   "    }\n\n" +
+                   "    private static int " + indexMethod + "(int hash, int seed) {\n" +
+                   "        int h = (hash ^ seed) * 0x9e3779b9;\n" +
+                   "        h ^= h >>> 15;\n" +
+                   "        h *= 0x85ebca6b;\n" +
+                   "        h ^= h >>> 13;\n" +
+                   "        return (h & 0x7fffffff) % " + size + ";\n" +
+                   "    }\n\n");
+        //@formatter:on
+    }
+
+    /**
+     * Unicode escapes are translated before the source is parsed, so they are used only for chars which can not
+     * terminate a line or a string literal.
+     */
+    private static String escape(char[] chars) {
+        StringBuilder sb = new StringBuilder(chars.length * 6);
+        for (char c : chars) {
+            if (c < 0x100) {
+                sb.append('\\').append(Integer.toOctalString(c));
+            } else {
+                sb.append("\\u");
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    sb.append(Character.forDigit((c >> shift) & 0xf, 16));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int index(int hash, int seed, int size) {
+        int h = (hash ^ seed) * 0x9e3779b9;
+        h ^= h >>> 15;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return (h & 0x7fffffff) % size;
+    }
+
+    /**
+     * @return slot of the key at the given index of the list the hash was created for
+     */
+    int getSlot(int keyIndex) {
+        return slots[keyIndex];
+    }
+
+}
@@ -0,0 +1,94 @@
+package eu.nyerel.hellodi.core;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer of generated source, streaming it to the underlying writer as it is generated. Fragments of nested classes
+ * are written as if they were top-level members, the writer indents each of their lines by the current nesting level.
+ * <p>
+ * Like {@link java.io.PrintWriter}, it does not throw on each append, so it can be used from lambdas. The first
+ * {@link IOException} stops the writing, and is thrown by {@link #flush()}.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class SourceWriter {
+
+    private static final String INDENTATION = "    ";
+
+    private final Writer writer;
+    private int level;
+    private boolean lineStart = true;
+    private IOException error;
+
+    SourceWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    SourceWriter append(String text) {
+        if (level == 0) {
+            write(text, 0, text.length());
+            lineStart = !text.isEmpty() ? text.charAt(text.length() - 1) == '\n' : lineStart;
+            return this;
+        }
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            if (lineStart && text.charAt(start) != '\n') {
+                for (int i = 0; i < level; i++) {
+                    write(INDENTATION, 0, INDENTATION.length());
+                }
+            }
+            write(text, start, end - start);
+            lineStart = text.charAt(end - 1) == '\n';
+            start = end;
+        }
+        return this;
+    }
+
+    SourceWriter append(int value) {
+        return append(Integer.toString(value));
+    }
+
+    SourceWriter append(long value) {
+        return append(Long.toString(value));
+    }
+
+    /**
+     * Lines appended until the matching {@link #unindent()} are indented by one more level.
+     */
+    SourceWriter indent() {
+        level++;
+        return this;
+    }
+
+    SourceWriter unindent() {
+        level--;
+        return this;
+    }
+
+    void flush() throws IOException {
+        if (error == null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void write(String text, int offset, int length) {
+        if (error == null) {
+            try {
+                writer.write(text, offset, length);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+}
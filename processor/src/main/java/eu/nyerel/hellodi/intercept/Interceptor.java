@@ -0,0 +1,41 @@
+package eu.nyerel.hellodi.intercept;
+
+/**
+ * Bean wrapping calls of the methods bound to it, annotated with one or more interceptor bindings (see
+ * {@link eu.nyerel.hellodi.annotation.InterceptorBinding}). There has to be exactly one interceptor of each binding.
+ * Like {@link eu.nyerel.hellodi.pool.Pool}, it is needed at runtime, so the processor artifact has to be on the runtime
+ * classpath of applications using interceptors.
+ * <p>
+ * The calls are wrapped by a subclass of the intercepted bean, generated at compile time, which calls the interceptors
+ * directly. Each of its call sites sees a single interceptor, so the JIT can inline the interceptor, and the invocation
+ * with it.
+ *
+ * <pre>{@code
+ * @Named
+ * @Timed
+ * public class TimingInterceptor implements Interceptor {
+ *
+ *     public <T> T intercept(Invocation<T> invocation) throws Exception {
+ *         long start = System.nanoTime();
+ *         try {
+ *             return invocation.proceed();
+ *         } finally {
+ *             metrics.record(invocation.getMethod(), System.nanoTime() - start);
+ *         }
+ *     }
+ *
+ * }
+ * }</pre>
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+public interface Interceptor {
+
+    /**
+     * @return result of the invocation, usually obtained by {@link Invocation#proceed()}
+     * @throws Exception checked exceptions not declared by the intercepted method are wrapped in
+     *                   {@link java.lang.reflect.UndeclaredThrowableException}
+     */
+    <T> T intercept(Invocation<T> invocation) throws Exception;
+
+}
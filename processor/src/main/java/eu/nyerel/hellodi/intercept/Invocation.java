@@ -0,0 +1,53 @@
+package eu.nyerel.hellodi.intercept;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Call of an intercepted method, passed to an {@link Interceptor}.
+ *
+ * @param <T> return type of the method, boxed ({@link Object} for void methods, returning null)
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+public final class Invocation<T> {
+
+    private final Object target;
+    private final String method;
+    private final Object[] arguments;
+    private final Callable<T> proceeding;
+
+    public Invocation(Object target, String method, Object[] arguments, Callable<T> proceeding) {
+        this.target = target;
+        this.method = method;
+        this.arguments = arguments;
+        this.proceeding = proceeding;
+    }
+
+    /**
+     * @return the intercepted bean
+     */
+    public Object getTarget() {
+        return target;
+    }
+
+    /**
+     * @return name of the intercepted method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return arguments of the call, shared by all the interceptors of the call, so they must not be modified
+     */
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Calls the next interceptor, or the intercepted method itself. It can be called more than once, to retry.
+     */
+    public T proceed() throws Exception {
+        return proceeding.call();
+    }
+
+}
@@ -10,7 +10,7 @@ import java.util.List;
  * @author Rastislav Papp (rastislav.papp@gmail.com)
  */
 @Value
-@Builder
+@Builder(toBuilder = true)
 public class Bean {
 
     String type;
@@ -18,6 +18,74 @@ public class Bean {
     @ToString.Exclude
     String packageName;
     @ToString.Exclude
-    List<String> dependencies;
+    List<Dependency> dependencies;
+    /**
+     * Public classes and interfaces the bean is assignable to, except {@link Object} and the bean type itself.
+     */
+    @ToString.Exclude
+    List<String> supertypes;
+    /**
+     * Name of the method called after the bean is created, before it is injected anywhere, or null.
+     */
+    @ToString.Exclude
+    String postConstructMethod;
+    /**
+     * Name of the method starting asynchronous initialization of the bean (after the {@code @PostConstruct} method),
+     * or null. It returns a {@link java.util.concurrent.CompletionStage}, the bean is injected only after it completes.
+     */
+    @ToString.Exclude
+    String asyncInitMethod;
+    /**
+     * Name of the method called when the injector is closed (the {@code @PreDestroy} method, or {@code close()} of an
+     * {@link AutoCloseable}), or null.
+     */
+    @ToString.Exclude
+    String destroyMethod;
+    /**
+     * Name of the method annotated with {@link eu.nyerel.hellodi.annotation.Warmup}, called by
+     * {@code Injector.warmUp()}, or null.
+     */
+    @ToString.Exclude
+    String warmupMethod;
+    /**
+     * Qualified name of the scope annotation of the bean, or null if the bean is held by the injector itself.
+     */
+    @ToString.Exclude
+    String scope;
+    /**
+     * Number of instances kept by the pool of a bean annotated with {@link eu.nyerel.hellodi.annotation.Pooled} (0 for
+     * the default), or null if the bean is not pooled.
+     */
+    @ToString.Exclude
+    Integer poolSize;
+    /**
+     * Qualified name of the generated subclass of the bean class calling the interceptors bound to the bean, which is
+     * instantiated instead of the bean class, or null if the bean is not intercepted.
+     */
+    @ToString.Exclude
+    String implementationType;
+    /**
+     * Qualified names of the interceptor bindings implemented by the bean, if it is an
+     * {@link eu.nyerel.hellodi.intercept.Interceptor}, otherwise empty.
+     */
+    @ToString.Exclude
+    List<String> interceptorBindings;
+    /**
+     * Names of the profiles the bean is wired into, listed by {@link eu.nyerel.hellodi.annotation.Profile}, empty if it
+     * is wired into all of them.
+     */
+    @ToString.Exclude
+    List<String> profiles;
+
+    public boolean isPooled() {
+        return poolSize != null;
+    }
+
+    /**
+     * @return qualified name of the class instantiated for the bean
+     */
+    public String getInstantiatedType() {
+        return implementationType != null ? implementationType : type;
+    }
 
 }
@@ -0,0 +1,83 @@
+package eu.nyerel.hellodi.model;
+
+import lombok.Builder;
+import lombok.ToString;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Result of analysis of a bean class, which does not depend on the other beans. It holds names only, so it stays valid
+ * in later processing rounds.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Value
+@Builder
+public class BeanType {
+
+    String type;
+    @ToString.Exclude
+    String packageName;
+    /**
+     * Constructor used for injection, in form used in error messages.
+     */
+    @ToString.Exclude
+    String constructor;
+    /**
+     * Parameters of the constructor used for injection, empty if there is no usable constructor.
+     */
+    @ToString.Exclude
+    List<InjectionPoint> injectionPoints;
+    /**
+     * Public classes and interfaces the bean is assignable to, except {@link Object} and the bean type itself.
+     */
+    @ToString.Exclude
+    List<String> supertypes;
+    /**
+     * Name of the method called after the bean is created, or null.
+     */
+    @ToString.Exclude
+    String postConstructMethod;
+    /**
+     * Name of the method starting asynchronous initialization of the bean, or null.
+     */
+    @ToString.Exclude
+    String asyncInitMethod;
+    /**
+     * Name of the method called when the injector is closed, or null.
+     */
+    @ToString.Exclude
+    String destroyMethod;
+    /**
+     * Name of the method warming up the bean, or null.
+     */
+    @ToString.Exclude
+    String warmupMethod;
+    /**
+     * Qualified name of the scope annotation, or null.
+     */
+    @ToString.Exclude
+    String scope;
+    /**
+     * Size of the pool of instances, or null if the bean is not pooled.
+     */
+    @ToString.Exclude
+    Integer poolSize;
+    /**
+     * Qualified name of the generated subclass calling the interceptors, or null if the bean is not intercepted.
+     */
+    @ToString.Exclude
+    String implementationType;
+    /**
+     * Qualified names of the interceptor bindings, if the bean is an {@link eu.nyerel.hellodi.intercept.Interceptor}.
+     */
+    @ToString.Exclude
+    List<String> interceptorBindings;
+    /**
+     * Names of the profiles the bean is wired into, empty if it is wired into all of them.
+     */
+    @ToString.Exclude
+    List<String> profiles;
+
+}
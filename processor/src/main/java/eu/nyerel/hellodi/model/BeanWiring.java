@@ -4,6 +4,8 @@ import lombok.Builder;
 import lombok.Value;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Rastislav Papp (rastislav.papp@gmail.com)
@@ -13,6 +15,23 @@ import java.util.List;
 public class BeanWiring {
 
     List<Bean> beans;
+    /**
+     * The same beans as {@link #beans}, grouped into levels. Beans of a level depend only on beans of previous levels,
+     * so all beans of one level can be created concurrently.
+     */
+    List<List<Bean>> levels;
     List<Bean> rootBeans;
+    /**
+     * Scopes of the scoped beans, which are not included in {@link #beans}.
+     */
+    List<Scope> scopes;
+
+    /**
+     * @return beans of the injector, followed by the beans of the scopes
+     */
+    public List<Bean> getAllBeans() {
+        return Stream.concat(beans.stream(), scopes.stream().flatMap(s -> s.getBeans().stream()))
+                .collect(Collectors.toList());
+    }
 
 }
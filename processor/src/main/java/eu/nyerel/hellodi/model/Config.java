@@ -3,15 +3,78 @@ package eu.nyerel.hellodi.model;
 import lombok.Builder;
 import lombok.Value;
 
+import java.util.List;
+
 /**
  * @author Rastislav Papp (rastislav.papp@gmail.com)
  */
 @Value
-@Builder
+@Builder(toBuilder = true)
 public class Config {
 
     String injectorName;
     String injectorPackage;
     boolean debug;
+    /**
+     * Build the bean graph only once and share it by all lookups, instead of creating a new graph on each call.
+     */
+    boolean singleton;
+    /**
+     * Create each bean on its first use, instead of creating all the beans up front.
+     */
+    boolean lazy;
+    /**
+     * Create independent beans of each dependency level concurrently.
+     */
+    boolean parallel;
+    /**
+     * Number of threads used in parallel mode, by default the number of beans in the widest level, at most the number of
+     * processors.
+     */
+    Integer parallelThreads;
+    /**
+     * Maximum number of beans created by a single generated method, and held by a single generated class.
+     */
+    int chunkSize;
+    /**
+     * Time in milliseconds {@code close()} of the injector waits for the beans to be destroyed.
+     */
+    int shutdownTimeout;
+    /**
+     * Emit JFR events for creation of each bean and for the whole wiring.
+     */
+    boolean jfr;
+    /**
+     * Write a class list of the injector and the beans for Application Class Data Sharing, with a training entry point
+     * loading the classes.
+     */
+    boolean cds;
+    /**
+     * Package of the library being compiled. Its beans are written to a library index in that package, instead of an
+     * injector.
+     */
+    String library;
+    /**
+     * Packages of the libraries whose beans (from their library indexes on the classpath) are wired with the beans of
+     * this compilation.
+     */
+    List<String> libraries;
+    /**
+     * Names of the root beans which get an injector of their own, holding only the beans reachable from the root.
+     */
+    List<String> roots;
+    /**
+     * Names of the profiles which get an injector each, holding the beans of the profile and the beans without any.
+     */
+    List<String> profiles;
+    /**
+     * Path of the properties file with the configuration values injected into the beans, or null.
+     */
+    String configFile;
+    /**
+     * Generate a builder of injectors with some of the beans overridden, which share the other beans with a base
+     * injector.
+     */
+    boolean overrides;
 
 }
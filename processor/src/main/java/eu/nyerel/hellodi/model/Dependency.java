@@ -0,0 +1,109 @@
+package eu.nyerel.hellodi.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Value
+@Builder(toBuilder = true)
+public class Dependency {
+
+    /**
+     * Name of the injected bean, for {@link Kind#INSTANCE}, {@link Kind#PROVIDER} and {@link Kind#POOL}.
+     */
+    String beanName;
+    /**
+     * Qualified name of the type the bean was resolved by, for {@link Kind#INSTANCE}, {@link Kind#PROVIDER} and
+     * {@link Kind#POOL}, or null if it was resolved by name. Dependencies of indexed beans are resolved by it again
+     * on each compilation, among the beans of the injector being generated. For the configuration value kinds, the
+     * type of the value.
+     */
+    String injectedType;
+    /**
+     * Key of the configuration value, for {@link Kind#VALUE} and {@link Kind#RUNTIME_VALUE}.
+     */
+    String configKey;
+    /**
+     * Configuration value from the properties file, or null if the file does not have it. Resolved on each
+     * compilation from {@link #configKey}, so it is not indexed.
+     */
+    String value;
+    /**
+     * Qualified name of the element type, for the multibinding kinds. All the beans assignable to it are injected.
+     */
+    String elementType;
+    /**
+     * Names of the beans injected as a collection, in iteration order, for the multibinding kinds. Resolved on each
+     * compilation from {@link #elementType}, so beans added by incremental compilation are included.
+     */
+    List<String> elementBeanNames;
+    Kind kind;
+
+    public boolean isMultibinding() {
+        return kind == Kind.LIST || kind == Kind.SET || kind == Kind.MAP;
+    }
+
+    public boolean isConfigValue() {
+        return kind == Kind.VALUE || kind == Kind.RUNTIME_VALUE;
+    }
+
+    /**
+     * @return beans which have to be created before the dependent bean
+     */
+    public List<String> getCreationDependencies() {
+        switch (kind) {
+            case INSTANCE:
+            case POOL:
+                return List.of(beanName);
+            case PROVIDER:
+            case VALUE:
+            case RUNTIME_VALUE:
+                return List.of();
+            default:
+                return elementBeanNames;
+        }
+    }
+
+    public enum Kind {
+        /**
+         * The bean itself is injected, it has to be created before the dependent bean.
+         */
+        INSTANCE,
+        /**
+         * A {@link javax.inject.Provider} of the bean is injected. The bean is not needed to create the dependent
+         * bean, so providers can be used to break dependency cycles.
+         */
+        PROVIDER,
+        /**
+         * A {@link eu.nyerel.hellodi.pool.Pool} of a pooled bean is injected. The pool has to be created before the
+         * dependent bean, the instances of the bean are created when borrowed.
+         */
+        POOL,
+        /**
+         * A {@link java.util.List} of all the beans of a type is injected.
+         */
+        LIST,
+        /**
+         * A {@link java.util.Set} of all the beans of a type is injected.
+         */
+        SET,
+        /**
+         * A {@link java.util.Map} of all the beans of a type, by bean name, is injected.
+         */
+        MAP,
+        /**
+         * A configuration value is injected, as a literal of the value the properties file had at compile time.
+         */
+        VALUE,
+        /**
+         * A configuration value is injected, read from a system property when the bean is created, with the value of
+         * the properties file as its default.
+         */
+        RUNTIME_VALUE
+    }
+
+}
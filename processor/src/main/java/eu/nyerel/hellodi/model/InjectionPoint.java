@@ -0,0 +1,37 @@
+package eu.nyerel.hellodi.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Value
+@Builder
+public class InjectionPoint {
+
+    /**
+     * Name of the constructor parameter, used as bean name if the bean is not resolved by type.
+     */
+    String parameterName;
+    /**
+     * Qualified name of the injected type, i.e. the type argument of a {@link javax.inject.Provider}, or the element
+     * type of a collection of beans.
+     */
+    String type;
+    /**
+     * Value of {@link javax.inject.Named} on the parameter, or null.
+     */
+    String qualifier;
+    Dependency.Kind kind;
+    /**
+     * Value of {@link eu.nyerel.hellodi.annotation.ConfigValue} on the parameter, or null.
+     */
+    String configKey;
+    /**
+     * Qualified name of the interceptor binding, if the parameter takes its interceptor (it is a parameter of the
+     * generated {@link InterceptedClass}), or null.
+     */
+    String interceptorBinding;
+
+}
@@ -0,0 +1,43 @@
+package eu.nyerel.hellodi.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Subclass of a bean class, generated to call the interceptors bound to methods of the bean. It is instantiated in
+ * place of the bean class, with an interceptor of each of the bindings passed after the parameters of the bean class
+ * constructor.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Value
+@Builder
+public class InterceptedClass {
+
+    String packageName;
+    String simpleName;
+    /**
+     * Qualified name of the bean class.
+     */
+    String superclass;
+    /**
+     * Types of the parameters of the constructor used for injection, as declared (the last one with {@code ...} if it
+     * is a varargs parameter).
+     */
+    List<String> constructorParameterTypes;
+    List<String> constructorParameterNames;
+    List<String> constructorThrownTypes;
+    /**
+     * Qualified names of the interceptor bindings of all the intercepted methods, in order of the constructor
+     * parameters taking their interceptors.
+     */
+    List<String> bindings;
+    List<InterceptedMethod> methods;
+
+    public String getQualifiedName() {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+}
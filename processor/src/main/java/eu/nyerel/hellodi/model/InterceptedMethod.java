@@ -0,0 +1,52 @@
+package eu.nyerel.hellodi.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Method overridden by an {@link InterceptedClass}, with types as seen from the bean class.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Value
+@Builder
+public class InterceptedMethod {
+
+    String name;
+    /**
+     * {@code public} or {@code protected}.
+     */
+    String modifier;
+    /**
+     * Declaration of the type parameters of the method (such as {@code <T extends java.lang.Number>}), or empty.
+     */
+    String typeParameters;
+    String returnType;
+    /**
+     * Types of the parameters, the last one with {@code ...} if it is a varargs parameter.
+     */
+    List<String> parameterTypes;
+    List<String> parameterNames;
+    List<String> thrownTypes;
+    /**
+     * Checked exceptions declared by the method, which are thrown on as they are when thrown by an interceptor, without
+     * the ones subsumed by others.
+     */
+    List<String> rethrownTypes;
+    /**
+     * Whether the method declares {@link Exception} (or {@link Throwable}), so all the exceptions thrown by the
+     * interceptors can be thrown on. Otherwise the other checked exceptions are wrapped.
+     */
+    boolean throwingAll;
+    /**
+     * Qualified names of the interceptor bindings of the method, the outermost first.
+     */
+    List<String> bindings;
+
+    public boolean isVoid() {
+        return "void".equals(returnType);
+    }
+
+}
@@ -0,0 +1,31 @@
+package eu.nyerel.hellodi.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Beans of one scope, created by a child injector of the injector, which holds the beans without a scope.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Value
+@Builder
+public class Scope {
+
+    /**
+     * Qualified name of the scope annotation.
+     */
+    String annotation;
+    List<Bean> beans;
+    /**
+     * The same beans as {@link #beans}, grouped into levels like {@link BeanWiring#getLevels()}.
+     */
+    List<List<Bean>> levels;
+
+    public String getSimpleName() {
+        return annotation.substring(annotation.lastIndexOf('.') + 1);
+    }
+
+}
@@ -0,0 +1,51 @@
+package eu.nyerel.hellodi.pool;
+
+/**
+ * Pool of instances of a bean annotated with {@link eu.nyerel.hellodi.annotation.Pooled}, injected into constructor
+ * parameters of type {@code Pool<T>}. Unlike the annotations, it is needed at runtime, so the processor artifact has to
+ * be on the runtime classpath of applications using pools.
+ * <p>
+ * The pool does not lock, and borrowing an instance allocates just its handle unless the pool is exhausted. Then a new
+ * instance is created, which is dropped when returned.
+ *
+ * <pre>{@code
+ * try (Pool.Handle<Parser> parser = parsers.borrow()) {
+ *     return parser.get().parse(text);
+ * }
+ * }</pre>
+ *
+ * @param <T> type of the pooled bean
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+public interface Pool<T> {
+
+    /**
+     * @return handle of an instance used exclusively by the caller, until the handle is closed
+     */
+    Handle<T> borrow();
+
+    /**
+     * Borrowed instance, returned to the pool by {@link #close()}. Each borrow gets a handle of its own, which can not
+     * be used after it is closed.
+     *
+     * @param <T> type of the pooled bean
+     */
+    interface Handle<T> extends AutoCloseable {
+
+        /**
+         * @return the borrowed instance
+         * @throws IllegalStateException if the handle was already closed
+         */
+        T get();
+
+        /**
+         * Returns the instance to the pool.
+         *
+         * @throws IllegalStateException if the handle was already closed
+         */
+        @Override
+        void close();
+
+    }
+
+}
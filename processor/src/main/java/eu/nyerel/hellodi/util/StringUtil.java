@@ -13,4 +13,8 @@ public class StringUtil {
         return s.isEmpty() ? "" : s.substring(0, 1).toLowerCase() + s.substring(1);
     }
 
+    public static String makeFirstLetterUpperCase(@NonNull String s) {
+        return s.isEmpty() ? "" : s.substring(0, 1).toUpperCase() + s.substring(1);
+    }
+
 }
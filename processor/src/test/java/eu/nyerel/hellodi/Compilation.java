@@ -0,0 +1,142 @@
+package eu.nyerel.hellodi;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sources compiled with the hello-di {@link Processor}, via {@link JavaCompiler}. Classes are written into a temporary
+ * directory, deleted on {@link #close()}.
+ *
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class Compilation implements AutoCloseable {
+
+    private final Path classesDirectory;
+    private final boolean success;
+    private final List<String> errors;
+    private URLClassLoader loader;
+
+    private Compilation(Path classesDirectory, boolean success, List<String> errors) {
+        this.classesDirectory = classesDirectory;
+        this.success = success;
+        this.errors = errors;
+    }
+
+    /**
+     * @param processorOptions options of the processor without the {@code -A} prefix, e.g. {@code hellodi.lazy=true}
+     */
+    static Compilation compile(Map<String, String> sourcesByClassName, String... processorOptions) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler, tests have to run on a JDK");
+        }
+        Path classesDirectory = createTempDirectory();
+        List<String> options = new ArrayList<>(List.of(
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", classesDirectory.toString(),
+                "-s", classesDirectory.toString(),
+                "-nowarn"));
+        for (String option : processorOptions) {
+            options.add("-A" + option);
+        }
+        List<JavaFileObject> sources = sourcesByClassName.entrySet().stream()
+                .map(Compilation::toFileObject)
+                .collect(Collectors.toList());
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, sources);
+        task.setProcessors(List.of(new Processor()));
+        boolean success = task.call();
+        List<String> errors = diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(Locale.ROOT))
+                .collect(Collectors.toList());
+        return new Compilation(classesDirectory, success, errors);
+    }
+
+    boolean isSuccess() {
+        return success;
+    }
+
+    List<String> getErrors() {
+        return errors;
+    }
+
+    Class<?> loadClass(String className) throws ClassNotFoundException {
+        if (!success) {
+            throw new IllegalStateException("Compilation failed: " + errors);
+        }
+        if (loader == null) {
+            try {
+                loader = new URLClassLoader(new URL[]{classesDirectory.toUri().toURL()}, Compilation.class.getClassLoader());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return loader.loadClass(className);
+    }
+
+    /**
+     * Invokes a public method of a generated class, an exception thrown by the method is rethrown as it is.
+     */
+    static Object invoke(Object target, String methodName, Class<?>[] parameterTypes, Object... arguments)
+            throws Throwable {
+        Class<?> type = target instanceof Class ? (Class<?>) target : target.getClass();
+        Method method = type.getMethod(methodName, parameterTypes);
+        try {
+            return method.invoke(target instanceof Class ? null : target, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (loader != null) {
+            loader.close();
+        }
+        try (Stream<Path> paths = Files.walk(classesDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("hellodi-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JavaFileObject toFileObject(Map.Entry<String, String> source) {
+        URI uri = URI.create("string:///" + source.getKey().replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source.getValue();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,60 @@
+package eu.nyerel.hellodi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+import static eu.nyerel.hellodi.Compilation.invoke;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class ConfigValueTest {
+
+    /**
+     * Control chars followed by digits, which must not be taken as parts of their escapes, line terminators, which must
+     * not be written as Unicode escapes, and chars beyond Latin-1.
+     */
+    private static final String VALUE = "\u0001" + "5" + "\u0000" + "77" + "\u007f" + "0" + "\r\n\t\b\f \"\\" +
+            "\u00e9\ud83d\ude00";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void injectsValuesWithSpecialChars() throws Throwable {
+        Properties properties = new Properties();
+        properties.setProperty("app.value", VALUE);
+        properties.setProperty("app.default", VALUE);
+        Path configFile = directory.resolve("app.properties");
+        try (Writer writer = Files.newBufferedWriter(configFile)) {
+            properties.store(writer, null);
+        }
+        Map<String, String> sources = Map.of(
+                "app.App", "package app;\n" +
+                        "import eu.nyerel.hellodi.annotation.ConfigValue;\n" +
+                        "@javax.inject.Named\n" +
+                        "public class App {\n" +
+                        "    public final String value;\n" +
+                        "    public final String defaultValue;\n" +
+                        "    public App(@ConfigValue(\"app.value\") String value,\n" +
+                        "               @ConfigValue(value = \"app.default\", runtime = true) String defaultValue) {\n" +
+                        "        this.value = value;\n" +
+                        "        this.defaultValue = defaultValue;\n" +
+                        "    }\n" +
+                        "}\n");
+        try (Compilation compilation = Compilation.compile(sources, "hellodi.injector.package=app",
+                "hellodi.config=" + configFile)) {
+            Object app = invoke(compilation.loadClass("app.Injector"), "inject", new Class<?>[0]);
+            assertEquals(VALUE, app.getClass().getField("value").get(app));
+            assertEquals(VALUE, app.getClass().getField("defaultValue").get(app));
+        }
+    }
+
+}
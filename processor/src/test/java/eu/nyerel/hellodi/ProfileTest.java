@@ -0,0 +1,97 @@
+package eu.nyerel.hellodi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static eu.nyerel.hellodi.Compilation.invoke;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class ProfileTest {
+
+    private static final Class<?>[] NAME = {String.class};
+    private static final Class<?>[] TYPE = {Class.class};
+
+    @Test
+    void swapsBeansOfSameNameByProfile() throws Throwable {
+        try (Compilation compilation = Compilation.compile(stores("\"prod\"", "\"test\""),
+                "hellodi.injector.package=app", "hellodi.profiles=prod,test")) {
+            assertStore(compilation, "app.ProdInjector", "app.JdbcStore");
+            assertStore(compilation, "app.TestInjector", "app.MemoryStore");
+        }
+    }
+
+    @Test
+    void rejectsBeansOfSameNameInSameProfile() throws Exception {
+        try (Compilation compilation = Compilation.compile(stores("{\"prod\", \"test\"}", "\"test\""),
+                "hellodi.injector.package=app", "hellodi.profiles=prod,test")) {
+            assertSameNameReported(compilation);
+        }
+    }
+
+    @Test
+    void rejectsBeanOfSameNameWithoutProfile() throws Exception {
+        Map<String, String> sources = Map.of(
+                "app.JdbcStore", "package app;\n" +
+                        "@javax.inject.Named(\"store\") @eu.nyerel.hellodi.annotation.Profile(\"prod\")\n" +
+                        "public class JdbcStore {}\n",
+                "app.MemoryStore", "package app;\n" +
+                        "@javax.inject.Named(\"store\")\n" +
+                        "public class MemoryStore {}\n");
+        try (Compilation compilation = Compilation.compile(sources, "hellodi.injector.package=app", "hellodi.profiles=prod")) {
+            assertSameNameReported(compilation);
+        }
+    }
+
+    /**
+     * The beans are given to the processor in no particular order, so is the pair of their types in the message.
+     */
+    private static void assertSameNameReported(Compilation compilation) {
+        assertFalse(compilation.isSuccess());
+        List<String> errors = compilation.getErrors();
+        assertEquals(1, errors.size(), errors.toString());
+        assertTrue(errors.get(0).startsWith("eu.nyerel.hellodi.Processor: Detected multiple beans with the same name - store ("),
+                errors.get(0));
+    }
+
+    private static void assertStore(Compilation compilation, String injectorClass, String storeClass) throws Throwable {
+        Object injector = invoke(compilation.loadClass(injectorClass), "create", new Class<?>[0]);
+        Object store = invoke(injector, "get", NAME, "store");
+        assertInstanceOf(compilation.loadClass(storeClass), store);
+        assertSame(store, invoke(injector, "get", TYPE, compilation.loadClass("app.Store")));
+        Object service = invoke(injector, "get", NAME, "service");
+        assertSame(store, service.getClass().getField("store").get(service));
+    }
+
+    /**
+     * Two implementations of a store named the same, in the given profiles, and a service using the store.
+     */
+    private static Map<String, String> stores(String jdbcProfiles, String memoryProfiles) {
+        return Map.of(
+                "app.Store", "package app;\n" +
+                        "public interface Store {}\n",
+                "app.JdbcStore", "package app;\n" +
+                        "@javax.inject.Named(\"store\") @eu.nyerel.hellodi.annotation.Profile(" + jdbcProfiles + ")\n" +
+                        "public class JdbcStore implements Store {}\n",
+                "app.MemoryStore", "package app;\n" +
+                        "@javax.inject.Named(\"store\") @eu.nyerel.hellodi.annotation.Profile(" + memoryProfiles + ")\n" +
+                        "public class MemoryStore implements Store {}\n",
+                "app.Service", "package app;\n" +
+                        "@javax.inject.Named\n" +
+                        "public class Service {\n" +
+                        "    public final Store store;\n" +
+                        "    public Service(Store store) {\n" +
+                        "        this.store = store;\n" +
+                        "    }\n" +
+                        "}\n");
+    }
+
+}
@@ -0,0 +1,70 @@
+package eu.nyerel.hellodi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static eu.nyerel.hellodi.Compilation.invoke;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class ScopeTest {
+
+    private static final Class<?>[] NAME = {String.class};
+
+    private Compilation compilation;
+    private Object injector;
+    private Object scope;
+
+    @BeforeEach
+    void createScope() throws Throwable {
+        compilation = Compilation.compile(Map.of(
+                "app.RequestScoped", "package app;\n" +
+                        "@javax.inject.Scope\n" +
+                        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+                        "public @interface RequestScoped {}\n",
+                "app.Request", "package app;\n" +
+                        "@javax.inject.Named @RequestScoped\n" +
+                        "public class Request {\n" +
+                        "    public Request(Repository repository) {}\n" +
+                        "}\n",
+                "app.Repository", "package app;\n" +
+                        "@javax.inject.Named\n" +
+                        "public class Repository {}\n"),
+                "hellodi.injector.package=app");
+        injector = invoke(compilation.loadClass("app.Injector"), "create", new Class<?>[0]);
+        scope = invoke(injector, "createRequestScoped", new Class<?>[0]);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        if (injector instanceof AutoCloseable) {
+            ((AutoCloseable) injector).close();
+        }
+        compilation.close();
+    }
+
+    @Test
+    void looksUpBeansByName() throws Throwable {
+        assertInstanceOf(compilation.loadClass("app.Request"), invoke(scope, "get", NAME, "request"));
+        assertSame(invoke(injector, "get", NAME, "repository"), invoke(scope, "get", NAME, "repository"));
+        assertNull(invoke(scope, "get", NAME, "missing"));
+    }
+
+    @Test
+    void rejectsNullName() {
+        NullPointerException e = assertThrows(NullPointerException.class, () -> invoke(scope, "get", NAME, (Object) null));
+        assertEquals("beanName", e.getMessage());
+        e = assertThrows(NullPointerException.class, () -> invoke(injector, "get", NAME, (Object) null));
+        assertEquals("beanName", e.getMessage());
+    }
+
+}
@@ -0,0 +1,192 @@
+package eu.nyerel.hellodi.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+class DependencyGraphTest {
+
+    private static final int CHAIN_LENGTH = 100_000;
+
+    @Test
+    void sortsBeansOfLevelInOrderOfMap() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("d", List.of("b", "c"));
+        dependencies.put("c", List.of("a"));
+        dependencies.put("b", List.of("a"));
+        dependencies.put("a", List.of());
+
+        DependencyGraph.Result result = new DependencyGraph(dependencies).sort();
+
+        assertEquals(List.of(List.of("a"), List.of("c", "b"), List.of("d")), result.getLevels());
+        assertEquals(List.of(), result.getCycles());
+        assertEquals(Map.of(), result.getUnknownDependencies());
+    }
+
+    /**
+     * Beans are put into the map from the end of the chain, so that the order does not come from the map.
+     */
+    @Test
+    void sortsLongChain() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        for (int i = CHAIN_LENGTH - 1; i > 0; i--) {
+            dependencies.put(chainBean(i), List.of(chainBean(i - 1)));
+        }
+        dependencies.put(chainBean(0), List.of());
+
+        DependencyGraph.Result result = new DependencyGraph(dependencies).sort();
+
+        List<List<String>> expectedLevels = new ArrayList<>();
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            expectedLevels.add(List.of(chainBean(i)));
+        }
+        assertEquals(expectedLevels, result.getLevels());
+        assertEquals(List.of(), result.getCycles());
+    }
+
+    /**
+     * The cycle is found without recursion, which would overflow the stack for a chain this long.
+     */
+    @Test
+    void reportsLongCycle() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put(chainBean(0), List.of(chainBean(CHAIN_LENGTH - 1)));
+        for (int i = 1; i < CHAIN_LENGTH; i++) {
+            dependencies.put(chainBean(i), List.of(chainBean(i - 1)));
+        }
+
+        DependencyGraph.Result result = new DependencyGraph(dependencies).sort();
+
+        List<String> expectedCycle = new ArrayList<>();
+        expectedCycle.add(chainBean(0));
+        for (int i = CHAIN_LENGTH - 1; i >= 0; i--) {
+            expectedCycle.add(chainBean(i));
+        }
+        assertEquals(List.of(), result.getLevels());
+        assertEquals(List.of(expectedCycle), result.getCycles());
+    }
+
+    @Test
+    void reportsCycleOfEachComponent() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("a", List.of("b"));
+        dependencies.put("b", List.of("c"));
+        dependencies.put("c", List.of("a"));
+        dependencies.put("d", List.of("d"));
+        dependencies.put("e", List.of("a"));
+        dependencies.put("f", List.of());
+
+        DependencyGraph.Result result = new DependencyGraph(dependencies).sort();
+
+        assertEquals(List.of(List.of("f")), result.getLevels());
+        assertEquals(List.of(List.of("a", "b", "c", "a"), List.of("d", "d")), result.getCycles());
+    }
+
+    /**
+     * Each bean of a random graph depends on beans with lower numbers, except of two beans in the middle which depend
+     * on each other. The beans are sorted, except of the cycle and all the beans depending on it.
+     */
+    @Test
+    void sortsRandomGraphWithCycle() {
+        int size = 10_000;
+        int first = size / 2;
+        int second = first + 1;
+        Random random = new Random(42);
+        Map<String, Collection<String>> dependencies = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Set<String> beanDependencies = new TreeSet<>();
+            for (int d = 0; d < Math.min(i, 3); d++) {
+                beanDependencies.add(randomBean(random.nextInt(i)));
+            }
+            dependencies.put(randomBean(i), beanDependencies);
+        }
+        dependencies.get(randomBean(first)).add(randomBean(second));
+        dependencies.put(randomBean(second), Set.of(randomBean(first)));
+
+        DependencyGraph.Result result = new DependencyGraph(dependencies).sort();
+
+        assertEquals(List.of(List.of(randomBean(first), randomBean(second), randomBean(first))), result.getCycles());
+        Map<String, Integer> levelsByBean = new HashMap<>();
+        for (int level = 0; level < result.getLevels().size(); level++) {
+            for (String bean : result.getLevels().get(level)) {
+                assertNull(levelsByBean.put(bean, level), bean + " is sorted twice");
+            }
+        }
+        Set<String> unsorted = dependingOn(dependencies, Set.of(randomBean(first)));
+        for (String bean : dependencies.keySet()) {
+            Integer level = levelsByBean.get(bean);
+            if (unsorted.contains(bean)) {
+                assertNull(level, bean + " depends on the cycle and is sorted");
+                continue;
+            }
+            assertNotNull(level, bean + " is not sorted");
+            int maxDependencyLevel = -1;
+            for (String dependency : dependencies.get(bean)) {
+                maxDependencyLevel = Math.max(maxDependencyLevel, levelsByBean.get(dependency));
+            }
+            assertEquals(maxDependencyLevel + 1, level, bean + " is not on the first level after its dependencies");
+        }
+        assertEquals(Map.of(), result.getUnknownDependencies());
+    }
+
+    @Test
+    void leavesOutBeansDependingOnUnknownBean() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        dependencies.put("a", List.of("missing", "c"));
+        dependencies.put("b", List.of("a"));
+        dependencies.put("c", List.of());
+        dependencies.put("d", List.of("missing", "other"));
+
+        DependencyGraph.Result result = new DependencyGraph(dependencies).sort();
+
+        assertEquals(List.of(List.of("c")), result.getLevels());
+        assertEquals(List.of(), result.getCycles());
+        Map<String, List<String>> expectedUnknown = new LinkedHashMap<>();
+        expectedUnknown.put("a", List.of("missing"));
+        expectedUnknown.put("d", List.of("missing", "other"));
+        assertEquals(expectedUnknown, result.getUnknownDependencies());
+    }
+
+    /**
+     * @return the given beans and all the beans depending on them, directly or transitively
+     */
+    private static Set<String> dependingOn(Map<String, Collection<String>> dependencies, Set<String> beans) {
+        Set<String> result = new HashSet<>(beans);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, Collection<String>> entry : dependencies.entrySet()) {
+                if (!result.contains(entry.getKey()) && entry.getValue().stream().anyMatch(result::contains)) {
+                    result.add(entry.getKey());
+                    changed = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String chainBean(int i) {
+        return "chain" + i;
+    }
+
+    private static String randomBean(int i) {
+        return "bean" + i;
+    }
+
+}
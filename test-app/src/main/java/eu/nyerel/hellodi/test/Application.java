@@ -14,19 +14,27 @@ public class Application {
     private final Talkative animal;
     private final Talkative someBean;
     private final MultipleConstructorsBean multipleConstructorsBean;
+    private final Chorus chorus;
 
     public Application(@Named("person") Talkative person,
                        @Named("animal") Talkative animal,
                        @Named("someBean") Talkative someBean,
-                       MultipleConstructorsBean multipleConstructorsBean) {
+                       MultipleConstructorsBean multipleConstructorsBean,
+                       Chorus chorus) {
         this.person = person;
         this.animal = animal;
         this.someBean = someBean;
         this.multipleConstructorsBean = multipleConstructorsBean;
+        this.chorus = chorus;
     }
 
     public static void main(String ... args) {
-        Injector.inject().run();
+        try (Injector injector = Injector.create()) {
+            injector.get().run();
+            try (Injector.ConversationScoped conversation = injector.createConversationScoped()) {
+                conversation.conversation().start();
+            }
+        }
     }
 
     public void run() {
@@ -34,6 +42,7 @@ public class Application {
         animal.sayHello();
         someBean.sayHello();
         multipleConstructorsBean.test();
+        chorus.introduce();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package eu.nyerel.hellodi.test;
+
+import javax.inject.Named;
+import java.util.Map;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Named
+public class Chorus implements AutoCloseable {
+
+    private final Map<String, Talkative> members;
+
+    public Chorus(Map<String, Talkative> members) {
+        this.members = members;
+    }
+
+    public void introduce() {
+        System.out.println("Talkative beans: " + members.keySet());
+    }
+
+    @Override
+    public void close() {
+        System.out.println("Chorus dismissed");
+    }
+
+}
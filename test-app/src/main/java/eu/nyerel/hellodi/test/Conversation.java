@@ -0,0 +1,28 @@
+package eu.nyerel.hellodi.test;
+
+import javax.inject.Named;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Named
+@ConversationScoped
+public class Conversation implements AutoCloseable {
+
+    private final Talkative person;
+
+    public Conversation(@Named("person") Talkative person) {
+        this.person = person;
+    }
+
+    public void start() {
+        System.out.println("Conversation started");
+        person.sayHello();
+    }
+
+    @Override
+    public void close() {
+        System.out.println("Conversation ended");
+    }
+
+}
@@ -0,0 +1,15 @@
+package eu.nyerel.hellodi.test;
+
+import javax.inject.Scope;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * @author Rastislav Papp (rastislav.papp@gmail.com)
+ */
+@Scope
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConversationScoped {
+}